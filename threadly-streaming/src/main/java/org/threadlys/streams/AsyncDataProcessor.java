@@ -1,10 +1,14 @@
 package org.threadlys.streams;
 
+import java.time.Duration;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import org.threadlys.utils.StateRevert;
+
 /**
  * The AsyncDataProcessor encapsulates the logic how to fork/join async operations on configured {@link DataProcessor} instances
  *
@@ -25,8 +29,30 @@ public interface AsyncDataProcessor {
      * @param contextBuilder
      * @param entityToUsedDataScopes
      */
+    default <E, C extends DataProcessorContext> void processAllEntities(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        processAllEntities(entityType, entityList, dataScopes, contextBuilder, entityToUsedDataScopes, null);
+    }
+
+    /**
+     * Same as {@link #processAllEntities(Class, Collection, Collection, Function, Map)} but additionally passes each entity to the given consumer as soon as all of its applicable data processors have
+     * applied their entity updaters. This allows to continue with already enriched entities - e.g. to serialize them - while other entities are still processed.<br>
+     * <br>
+     * The consumer is invoked exactly once per non-null entity, possibly from a worker thread, but never concurrently. If the processing fails the consumer is not invoked for any of the remaining
+     * entities.
+     *
+     * @param <E>
+     * @param <C>
+     * @param entityType
+     * @param entityList
+     * @param dataScopes
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @param entityProcessedConsumer
+     *            Receives each entity once it is completely processed. May be null
+     */
     <E, C extends DataProcessorContext> void processAllEntities(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes, Function<E, C> contextBuilder,
-            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes);
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer);
 
     /**
      * Resolves all via {@link DataProcessorExtendable} configured {@link DataProcessor} instance of the given entityType. It then filters all those data processors for the ones that apply to the
@@ -42,6 +68,158 @@ public interface AsyncDataProcessor {
      * @param contextBuilder
      * @param entityToUsedDataScopes
      */
+    default <E, C extends DataProcessorContext> void processAllEntities(Class<E> entityType, Collection<?> entityList, Function<E, Collection<DataScope>> dataScopeSupplier,
+            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        processAllEntities(entityType, entityList, dataScopeSupplier, contextBuilder, entityToUsedDataScopes, null);
+    }
+
+    /**
+     * Same as {@link #processAllEntities(Class, Collection, Function, Function, Map)} but additionally passes each entity to the given consumer as soon as it is completely processed. See
+     * {@link #processAllEntities(Class, Collection, Collection, Function, Map, Consumer)} for details.
+     *
+     * @param <E>
+     * @param <C>
+     * @param entityType
+     * @param entityList
+     * @param dataScopeSupplier
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @param entityProcessedConsumer
+     *            Receives each entity once it is completely processed. May be null
+     */
     <E, C extends DataProcessorContext> void processAllEntities(Class<E> entityType, Collection<?> entityList, Function<E, Collection<DataScope>> dataScopeSupplier, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer);
+
+    /**
+     * Same as {@link #processAllEntities(Class, Collection, Collection, Function, Map)} but isolates the failures of data processors per entity instead of aborting the whole call on the first failure
+     * of a data processor without {@link DataProcessorExceptionHandler}. Only the data processors of the failed entity that depend on the failed data processor are skipped - all other data processors
+     * are executed and their entity updaters applied as usual.
+     *
+     * @param <E>
+     * @param <C>
+     * @param entityType
+     * @param entityList
+     * @param dataScopes
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @return The outcome per entity
+     */
+    <E, C extends DataProcessorContext> DataProcessingResult<E> tryProcessAllEntities(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes);
+
+    /**
+     * Same as {@link #processAllEntities(Class, Collection, Function, Function, Map)} but isolates the failures of data processors per entity. See
+     * {@link #tryProcessAllEntities(Class, Collection, Collection, Function, Map)} for details.
+     *
+     * @param <E>
+     * @param <C>
+     * @param entityType
+     * @param entityList
+     * @param dataScopeSupplier
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @return The outcome per entity
+     */
+    <E, C extends DataProcessorContext> DataProcessingResult<E> tryProcessAllEntities(Class<E> entityType, Collection<?> entityList, Function<E, Collection<DataScope>> dataScopeSupplier,
+            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes);
+
+    /**
+     * Same as {@link #processAllEntities(Class, Collection, Collection, Function, Map)} but defers the work: no data processor is executed before a data scope is ensured via the returned handle. This
+     * avoids computing data nobody reads if callers request broad data scopes but only access a fraction of the enriched properties.<br>
+     * <br>
+     * The used data scopes are shared by all executions of the handle - so data processors required by several data scopes are executed only once. If the given map is null the handle tracks the used
+     * data scopes on its own.
+     *
+     * @param <E>
+     * @param <C>
+     * @param entityType
+     * @param entityList
+     * @param dataScopes
+     *            The data scopes which may be ensured later on
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @return The handle to ensure the data scopes on demand
+     */
+    <E, C extends DataProcessorContext> LazyDataProcessing<E> processAllEntitiesLazily(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes,
+            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes);
+
+    /**
+     * Resolves all via {@link DataProcessorExtendable} configured {@link DataProcessor} instances of the given entityType that apply to the given list of data scopes and compiles them into an immutable
+     * plan. The plan can be executed many times via {@link #execute(DataProcessorPlan, Collection, Function, Map)} without resolving the applicable data processors again.
+     *
+     * @param <E>
+     * @param entityType
+     * @param dataScopes
+     * @return
+     */
+    <E> DataProcessorPlan<E> buildPlan(Class<E> entityType, Collection<DataScope> dataScopes);
+
+    /**
+     * Executes the given plan on the given entities. This is equivalent to {@link #processAllEntities(Class, Collection, Collection, Function, Map)} with the entity type and data scopes of the plan.
+     *
+     * @param <E>
+     * @param <C>
+     * @param plan
+     * @param entityList
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     */
+    default <E, C extends DataProcessorContext> void execute(DataProcessorPlan<E> plan, Collection<?> entityList, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        execute(plan, entityList, contextBuilder, entityToUsedDataScopes, null);
+    }
+
+    /**
+     * Same as {@link #execute(DataProcessorPlan, Collection, Function, Map)} but additionally passes each entity to the given consumer as soon as it is completely processed. See
+     * {@link #processAllEntities(Class, Collection, Collection, Function, Map, Consumer)} for details.
+     *
+     * @param <E>
+     * @param <C>
+     * @param plan
+     * @param entityList
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @param entityProcessedConsumer
+     *            Receives each entity once it is completely processed. May be null
+     */
+    <E, C extends DataProcessorContext> void execute(DataProcessorPlan<E> plan, Collection<?> entityList, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer);
+
+    /**
+     * Same as {@link #execute(DataProcessorPlan, Collection, Function, Map)} but isolates the failures of data processors per entity. See
+     * {@link #tryProcessAllEntities(Class, Collection, Collection, Function, Map)} for details.
+     *
+     * @param <E>
+     * @param <C>
+     * @param plan
+     * @param entityList
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @return The outcome per entity
+     */
+    <E, C extends DataProcessorContext> DataProcessingResult<E> tryExecute(DataProcessorPlan<E> plan, Collection<?> entityList, Function<E, C> contextBuilder,
             Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes);
+
+    /**
+     * Executes the given plan on the given entities. This is equivalent to {@link #execute(DataProcessorPlan, Collection, Function, Map)} without sharing the used data scopes across calls.
+     *
+     * @param <E>
+     * @param <C>
+     * @param plan
+     * @param entityList
+     * @param contextBuilder
+     */
+    default <E, C extends DataProcessorContext> void execute(DataProcessorPlan<E> plan, Collection<?> entityList, Function<E, C> contextBuilder) {
+        execute(plan, entityList, contextBuilder, null);
+    }
+
+    /**
+     * Limits all calls of this engine on the current thread to finish within the given timeout - including the nested calls issued from within a data processor on a worker thread. A data processor
+     * still running at the deadline is handled like a data processor exceeding its own timeout - see {@link DataProcessorExtendable#registerDataProcessorTimeout(DataProcessor, Duration)}. A nested
+     * deadline can only shorten an already existing deadline.
+     *
+     * @param timeout
+     * @return The handle to restore the previous deadline
+     */
+    StateRevert pushDeadline(Duration timeout);
 }
@@ -0,0 +1,47 @@
+package org.threadlys.streams;
+
+import java.util.List;
+
+/**
+ * A specialization of {@link DataProcessor} that is able to enrich many entities with a single invocation - e.g. by issuing one bulk query or one bulk HTTP call for all entities of a stage instead of
+ * one backend roundtrip per entity. It is registered exactly like any other data processor via {@link DataProcessorExtendable}. The {@link AsyncDataProcessor} engine recognizes this type and
+ * collects all entities of a stage that require this processor into chunks of at most {@link #getMaxBatchSize()} entities. Each chunk is executed as a single task on the fork join pool so that
+ * several chunks may still be processed concurrently by different workers.
+ *
+ * @author Dennis Koch (EXXETA AG)
+ *
+ * @param <E>
+ *            The supported entity type
+ * @param <C>
+ *            The supported context type
+ */
+public interface BatchDataProcessor<E, C> extends DataProcessor<E, C> {
+    /**
+     * Processes a chunk of entities in a single invocation. The returned list has to have exactly the same size and order as the given list of contexts. Each returned updater is applied to the entity
+     * of the context with the same index. A <code>null</code> entry denotes that the corresponding entity does not need any update.
+     *
+     * @param contexts
+     *            The contexts of all entities of the current chunk
+     * @return The entity updaters correlated by index to the given contexts
+     * @throws Exception
+     */
+    List<CheckedConsumer<E>> processBatch(List<C> contexts) throws Exception;
+
+    /**
+     * The maximum amount of entities passed to a single invocation of {@link #processBatch(List)}. A value lower or equal than zero means that the default of the engine applies.
+     *
+     * @return The maximum amount of entities per chunk
+     */
+    default int getMaxBatchSize() {
+        return 0;
+    }
+
+    @Override
+    default CheckedConsumer<E> process(C context) throws Exception {
+        var entityUpdaters = processBatch(List.of(context));
+        if (entityUpdaters == null || entityUpdaters.isEmpty()) {
+            return null;
+        }
+        return entityUpdaters.get(0);
+    }
+}
@@ -0,0 +1,74 @@
+package org.threadlys.streams;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import lombok.Getter;
+
+/**
+ * The outcome of {@link AsyncDataProcessor#tryProcessAllEntities(Class, java.util.Collection, java.util.Collection, java.util.function.Function, java.util.Map)} and its variants. In contrast to the
+ * regular calls a failing data processor does not abort the whole call: only the data processors of the same entity depending on the failed one are skipped, all other entity updaters are still
+ * applied.
+ *
+ * @param <E>
+ *            The entity type
+ */
+public class DataProcessingResult<E> {
+    /**
+     * One result per non-null entity in the order of the given entities: the entity itself if all its data processors succeeded, otherwise the first failure of the entity
+     */
+    @Getter
+    protected final List<Either<DataProcessorFailure<E>, E>> entityResults;
+
+    /**
+     * All failures of all entities. An entity may have several failures if independent data processors of the entity failed
+     */
+    @Getter
+    protected final List<DataProcessorFailure<E>> failures;
+
+    public DataProcessingResult(List<Either<DataProcessorFailure<E>, E>> entityResults, List<DataProcessorFailure<E>> failures) {
+        this.entityResults = entityResults;
+        this.failures = failures;
+    }
+
+    /**
+     * True if any data processor of any entity failed
+     *
+     * @return
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    /**
+     * All entities whose data processors all succeeded
+     *
+     * @return
+     */
+    public List<E> getProcessedEntities() {
+        return entityResults.stream()//
+                .filter(Either::isRight)//
+                .map(entityResult -> entityResult.getRight()
+                        .get())//
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * All entities with at least one failed data processor
+     *
+     * @return
+     */
+    public List<E> getFailedEntities() {
+        return entityResults.stream()//
+                .filter(Either::isLeft)//
+                .map(entityResult -> entityResult.getLeft()
+                        .get()
+                        .getEntity())//
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return "DataProcessingResult[" + entityResults.size() + " entities, " + failures.size() + " failures]";
+    }
+}
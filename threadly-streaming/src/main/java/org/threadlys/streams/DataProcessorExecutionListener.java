@@ -0,0 +1,76 @@
+package org.threadlys.streams;
+
+/**
+ * Receives timings and counts of the executions of the {@link AsyncDataProcessor}. It is registered via
+ * {@link DataProcessorExtendable#registerDataProcessorExecutionListener(DataProcessorExecutionListener)}. An in-memory implementation is provided by
+ * {@link org.threadlys.streams.impl.InMemoryDataProcessorExecutionStatistics}.<br>
+ * <br>
+ * All methods are invoked synchronously - and in parallel - on the threads doing the actual work. So implementations have to be thread-safe, fast and must not throw. All durations are given in
+ * nanoseconds.
+ */
+public interface DataProcessorExecutionListener {
+    /**
+     * A plan has been compiled because it was not yet cached for the current configuration
+     *
+     * @param plan
+     * @param compileNanos
+     */
+    default void planCompiled(DataProcessorPlan<?> plan, long compileNanos) {
+        // intended blank
+    }
+
+    /**
+     * A single call of the {@link AsyncDataProcessor} finished - successfully or not
+     *
+     * @param entityType
+     * @param entityCount
+     *            The number of given entities
+     * @param elapsedNanos
+     *            The wall time of the whole call
+     */
+    default void executionFinished(Class<?> entityType, int entityCount, long elapsedNanos) {
+        // intended blank
+    }
+
+    /**
+     * A single stage finished including the application of its entity updaters. Only reported in {@link DataProcessorExecutionMode#STAGED} mode
+     *
+     * @param entityType
+     * @param stageIndex
+     * @param taskCount
+     *            The number of executed tasks of the stage. A chunk of a {@link BatchDataProcessor} counts as a single task
+     * @param elapsedNanos
+     *            The wall time of the stage
+     */
+    default void stageFinished(Class<?> entityType, int stageIndex, int taskCount, long elapsedNanos) {
+        // intended blank
+    }
+
+    /**
+     * A single invocation of a data processor finished
+     *
+     * @param dataProcessor
+     * @param entityCount
+     *            1 - or the size of the chunk in case of a {@link BatchDataProcessor}
+     * @param queueWaitNanos
+     *            The time between the submission of the invocation and its start on a worker
+     * @param runNanos
+     *            The time between the start of the invocation and its completion - or its timeout
+     * @param successful
+     *            false if the data processor failed or did not finish in time
+     */
+    default void dataProcessorExecuted(DataProcessor<?, ?> dataProcessor, int entityCount, long queueWaitNanos, long runNanos, boolean successful) {
+        // intended blank
+    }
+
+    /**
+     * A data processor has not been invoked for an entity - either because the data scopes of the entity have already been processed or because the data processor does not
+     * {@link DataProcessor#expectsExecution(Object, Object) expect} its execution
+     *
+     * @param dataProcessor
+     * @param entity
+     */
+    default void dataProcessorSkipped(DataProcessor<?, ?> dataProcessor, Object entity) {
+        // intended blank
+    }
+}
@@ -0,0 +1,19 @@
+package org.threadlys.streams;
+
+/**
+ * Defines how the {@link AsyncDataProcessor} engine schedules the applicable {@link DataProcessor} instances of a call
+ *
+ * @author Dennis Koch (EXXETA AG)
+ */
+public enum DataProcessorExecutionMode {
+    /**
+     * All data processors of a stage are executed for all entities before any data processor of the next stage starts. The stages are derived from the registered data processor dependencies.
+     */
+    STAGED,
+
+    /**
+     * Each data processor of an entity starts as soon as the data processors providing its required data scopes have finished for that very same entity. There is no global barrier between stages, so
+     * a single slow data processor only delays the downstream data processors of its own entity.
+     */
+    DEPENDENCY_DRIVEN;
+}
@@ -1,16 +1,18 @@
 package org.threadlys.streams;
 
+import java.time.Duration;
 import java.util.Collection;
+import java.util.function.Consumer;
 
 import org.threadlys.utils.StateRevert;
-import org.threadlys.utils.DefaultStateRevert;
+import org.threadlys.utils.StateRevertChain;
 
 /**
  * Defines extension points for registering data processors in order to make them available within the {@link AsyncDataProcessor} engine
  */
 public interface DataProcessorExtendable {
     default <E> StateRevert registerDataProcessor(DataProcessor<E, ?> dataProcessor, Class<? extends E> entityType, Collection<DataScope> dataScopes, Collection<DataScope> requiredDataScopes) {
-        return DefaultStateRevert.chain(chain -> {
+        return registerAll(chain -> {
             if (dataScopes != null) {
                 for (DataScope dataScope : dataScopes) {
                     chain.append(registerDataProcessor(dataProcessor, entityType, dataScope));
@@ -24,6 +26,25 @@ public interface DataProcessorExtendable {
         });
     }
 
+    /**
+     * Applies all registrations appended to the given chain as a single configuration change. Compared to individual registrations the configuration is copied, validated and published only once - which
+     * is considerably faster when registering many data processors, e.g. on startup. If any registration or the validation of the resulting configuration fails none of the registrations gets visible.
+     * <br>
+     * <br>
+     * Usage example:<br>
+     * <br>
+     * <code>
+     * var revert = dataProcessorExtendable.registerAll(chain -> {<br>
+     * &nbsp;&nbsp;chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor1, MyEntity.class, dataScope1));<br>
+     * &nbsp;&nbsp;chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor2, MyEntity.class, dataScope2));<br>
+     * });<br>
+     * </code>
+     *
+     * @param registrations
+     * @return The handle to revert all registrations again - also as a single configuration change
+     */
+    StateRevert registerAll(Consumer<StateRevertChain> registrations);
+
     /**
      * Registers a data processor for the given entity type and the given data scope of this entity type
      * 
@@ -53,4 +74,96 @@ public interface DataProcessorExtendable {
      * @param exceptionHandler
      */
     <E> StateRevert registerDataProcessorExceptionHandler(DataProcessor<E, ?> dataProcessor, DataProcessorExceptionHandler exceptionHandler);
+
+    /**
+     * Registers a timeout for each execution of the given data processor. If {@link DataProcessor#process(Object)} does not finish in time the worker executing it is interrupted and the result is
+     * discarded. Instead a {@link DataProcessorTimeoutException} is redirected to the exception handler of the data processor or - if there is none - thrown to the caller. The timeout is measured from
+     * the moment the data processor is scheduled. If several timeouts are registered for the same data processor the last one applies.
+     *
+     * @param <E>
+     * @param dataProcessor
+     * @param timeout
+     */
+    <E> StateRevert registerDataProcessorTimeout(DataProcessor<E, ?> dataProcessor, Duration timeout);
+
+    /**
+     * Registers the given data processor for request coalescing: concurrent executions for the same domain ref - see {@link DataProcessorContext#extractDomainRef(Object)} - and the same data scopes
+     * share a single invocation of {@link DataProcessor#process(Object)}, even across independent callers. Each caller applies the shared entity updater to its own entity.<br>
+     * <br>
+     * This is only valid if the outcome of the data processor depends on nothing but the domain ref and the data scopes - and not on any other state of the context or of the caller. The shared entity
+     * updater must only modify the entity passed to it.
+     *
+     * @param <E>
+     * @param dataProcessor
+     */
+    <E> StateRevert registerDataProcessorCoalescing(DataProcessor<E, ?> dataProcessor);
+
+    /**
+     * Registers the given data processor for result caching: the entity updater returned by {@link DataProcessor#process(Object)} for a domain ref and data scopes is reused for the given time to live
+     * - even across independent callers. The same restrictions as for {@link #registerDataProcessorCoalescing(DataProcessor)} apply. Fallbacks of exception handlers are never cached. If several time
+     * to lives are registered for the same data processor the last one applies.
+     *
+     * @param <E>
+     * @param dataProcessor
+     * @param timeToLive
+     * @see DataProcessorResultCache
+     */
+    <E> StateRevert registerDataProcessorResultCaching(DataProcessor<E, ?> dataProcessor, Duration timeToLive);
+
+    /**
+     * Registers the given data processor for concurrent entity updates: its entity updater is applied directly on the worker thread as soon as the data processor finished - instead of being applied
+     * by the calling thread after the whole stage finished, one entity updater at a time.<br>
+     * <br>
+     * This is only valid if the entity updater is thread-safe for disjoint entities and only modifies properties of the entity which no other data processor of the same stage reads or writes.
+     * Fallbacks for timed out executions are still applied by the calling thread.
+     *
+     * @param <E>
+     * @param dataProcessor
+     */
+    <E> StateRevert registerDataProcessorConcurrentEntityUpdate(DataProcessor<E, ?> dataProcessor);
+
+    /**
+     * Registers the expected runtime of the given data processor. Within a stage the engine submits the most expensive work first so that it does not extend the duration of the stage after all cheap
+     * work already finished. Data processors without a registered cost estimate are ordered by their observed runtime - unless disabled via <code>threadlys.streams.learn-cost-estimates</code>. If
+     * several cost estimates are registered for the same data processor the last one applies.
+     *
+     * @param <E>
+     * @param dataProcessor
+     * @param costEstimate
+     */
+    <E> StateRevert registerDataProcessorCostEstimate(DataProcessor<E, ?> dataProcessor, Duration costEstimate);
+
+    /**
+     * Assigns the given data processor to the bulkhead with the given name: all data processors of the same bulkhead together never run more than the given number of executions concurrently. Further
+     * executions are queued without occupying a worker until a running execution finishes. This prevents a single slow backend from starving all other data processors sharing the same pool. All data
+     * processors of the same bulkhead need to declare the same maximum concurrency. A data processor must not wait for another execution of its own bulkhead as this may never be admitted.
+     *
+     * @param <E>
+     * @param dataProcessor
+     * @param bulkheadName
+     * @param maxConcurrency
+     */
+    <E> StateRevert registerDataProcessorBulkhead(DataProcessor<E, ?> dataProcessor, String bulkheadName, int maxConcurrency);
+
+    /**
+     * Registers the given data processor for hedged execution: if an invocation of {@link DataProcessor#process(Object)} did not finish within the given percentile of its recently observed latencies
+     * a second invocation with the same context is launched. Whichever invocation finishes first - successfully or not - provides the outcome and the other one is interrupted. The outcome passes the
+     * exception handler of the data processor as usual. As long as there are not enough observed latencies no second invocation is launched.<br>
+     * <br>
+     * This is only valid for data processors without side effects, as both invocations may run to completion. A percentile of 95 means that about 5% of the invocations cause additional load. Hedging
+     * does not apply to coalescing data processors or data processors with result caching. If several percentiles are registered for the same data processor the last one applies.
+     *
+     * @param <E>
+     * @param dataProcessor
+     * @param percentile
+     *            Between 0 (exclusive) and 100 (exclusive)
+     */
+    <E> StateRevert registerDataProcessorHedging(DataProcessor<E, ?> dataProcessor, double percentile);
+
+    /**
+     * Registers the given listener for the timings and counts of all subsequent executions. Without any registered listener the engine does not even measure them.
+     *
+     * @param executionListener
+     */
+    StateRevert registerDataProcessorExecutionListener(DataProcessorExecutionListener executionListener);
 }
@@ -0,0 +1,20 @@
+package org.threadlys.streams;
+
+import lombok.Value;
+
+/**
+ * Describes the failure of a single {@link DataProcessor} for a single entity within a {@link DataProcessingResult}. The cause is either the exception of the data processor itself, the exception of
+ * its entity updater or of its {@link DataProcessor#expectsExecution(Object, Object)}, or a {@link DataProcessorTimeoutException}. If the context of an entity could not be built there is a failure
+ * with the exception of the context builder for each data processor of the entity.
+ *
+ * @param <E>
+ *            The entity type
+ */
+@Value
+public class DataProcessorFailure<E> {
+    E entity;
+
+    DataProcessor<E, ?> dataProcessor;
+
+    Throwable cause;
+}
@@ -0,0 +1,48 @@
+package org.threadlys.streams;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * An immutable, precompiled execution plan of all {@link DataProcessor} instances applicable to a given entity type and a given set of data scopes. A plan is created once via
+ * {@link AsyncDataProcessor#buildPlan(Class, Collection)} and can then be executed many times via {@link AsyncDataProcessor#execute(DataProcessorPlan, Collection, Function)} without resolving the
+ * applicable data processors again.<br>
+ * <br>
+ * A plan reflects the configuration of {@link DataProcessorExtendable} at the moment it was built. If the configuration changes afterwards the engine transparently uses an up-to-date plan for the
+ * same entity type and data scopes on execution.
+ *
+ * @author Dennis Koch (EXXETA AG)
+ *
+ * @param <E>
+ *            The entity type of the plan
+ */
+public interface DataProcessorPlan<E> {
+    /**
+     * The entity type this plan has been built for
+     *
+     * @return
+     */
+    Class<E> getEntityType();
+
+    /**
+     * The requested data scopes this plan has been built for
+     *
+     * @return
+     */
+    Set<DataScope> getDataScopes();
+
+    /**
+     * The amount of stages of this plan. Data processors of the same stage do not depend on each other.
+     *
+     * @return
+     */
+    int getStageCount();
+
+    /**
+     * The amount of distinct data processors applicable in this plan
+     *
+     * @return
+     */
+    int getDataProcessorCount();
+}
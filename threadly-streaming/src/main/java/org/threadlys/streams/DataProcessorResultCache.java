@@ -0,0 +1,36 @@
+package org.threadlys.streams;
+
+import java.time.Duration;
+
+/**
+ * Stores the entity updaters returned by {@link DataProcessor#process(Object)} for data processors registered via
+ * {@link DataProcessorExtendable#registerDataProcessorResultCaching(DataProcessor, Duration)}. A bean of this type replaces the default LRU implementation of the {@link AsyncDataProcessor} engine -
+ * e.g. to plug in a cache library with a more sophisticated eviction policy.<br>
+ * <br>
+ * Implementations have to be thread-safe. The keys are opaque to the cache but implement {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ */
+public interface DataProcessorResultCache {
+    /**
+     * Returns the cached entity updater for the given key
+     *
+     * @param key
+     * @return The cached entity updater or null if there is none or if it expired
+     */
+    CheckedConsumer<?> get(Object key);
+
+    /**
+     * Stores the given entity updater for the given key
+     *
+     * @param key
+     * @param entityUpdater
+     *            Never null
+     * @param timeToLive
+     *            The duration after which the entry must no longer be returned
+     */
+    void put(Object key, CheckedConsumer<?> entityUpdater, Duration timeToLive);
+
+    /**
+     * Removes all entries
+     */
+    void clear();
+}
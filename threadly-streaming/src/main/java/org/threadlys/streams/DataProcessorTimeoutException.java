@@ -0,0 +1,20 @@
+package org.threadlys.streams;
+
+import lombok.Getter;
+
+/**
+ * Signals that a {@link DataProcessor} did not finish within its timeout registered via {@link DataProcessorExtendable#registerDataProcessorTimeout(DataProcessor, java.time.Duration)} or within the
+ * deadline of the current call pushed via {@link AsyncDataProcessor#pushDeadline(java.time.Duration)}. It is passed to the {@link DataProcessorExceptionHandler} of the data processor - if any - so
+ * that a fallback entity updater can be provided. Otherwise it is thrown to the caller.
+ */
+@SuppressWarnings("serial")
+public class DataProcessorTimeoutException extends RuntimeException {
+    @Getter
+    private final transient DataProcessor<?, ?> dataProcessor;
+
+    public DataProcessorTimeoutException(DataProcessor<?, ?> dataProcessor) {
+        super("Data processor '" + dataProcessor.getClass()
+                .getName() + "' did not finish in time");
+        this.dataProcessor = dataProcessor;
+    }
+}
@@ -0,0 +1,46 @@
+package org.threadlys.streams;
+
+import java.util.Set;
+
+/**
+ * The handle of a lazy call of {@link AsyncDataProcessor#processAllEntitiesLazily(Class, java.util.Collection, java.util.Collection, java.util.function.Function, java.util.Map)}. No data processor
+ * is executed until a data scope is ensured - typically from the accessor of a property that belongs to the data scope, e.g. while the entities are serialized. The first access of a data scope
+ * processes it for all entities of the call in a single batch, so each data scope is processed at most once per handle. Data scopes nobody accesses are never processed.<br>
+ * <br>
+ * A data processor must not ensure a data scope of the very handle it is executed for, as it would wait for itself. If the data processor runs on the ensuring thread this is rejected with an
+ * {@link IllegalStateException} - on any other thread it is not detected and never returns.<br>
+ * <br>
+ * If the execution of a data scope fails, the threads waiting for it do not fail with its exception. They retry the data scope instead.
+ *
+ * @param <E>
+ *            The entity type
+ */
+public interface LazyDataProcessing<E> {
+    /**
+     * Ensures that the given data scope has been processed for the given entity. This is a no-op once the data scope has been processed
+     *
+     * @param entity
+     *            One of the entities of the lazy call
+     * @param dataScope
+     *            One of the data scopes of the lazy call
+     */
+    void ensureScope(E entity, DataScope dataScope);
+
+    /**
+     * Ensures that the given data scope has been processed for all entities of the lazy call
+     *
+     * @param dataScope
+     *            One of the data scopes of the lazy call
+     */
+    void ensureScope(DataScope dataScope);
+
+    /**
+     * Processes all not yet processed data scopes of the lazy call in a single execution - e.g. if it turns out that the whole response is needed anyway
+     */
+    void ensureAllScopes();
+
+    /**
+     * @return The data scopes of the lazy call that have not (yet) been ensured
+     */
+    Set<DataScope> getPendingDataScopes();
+}
@@ -0,0 +1,52 @@
+package org.threadlys.streams;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A specialization of {@link DataProcessor} for backends with a non-blocking client - e.g. an async HTTP client. It is registered exactly like any other data processor via
+ * {@link DataProcessorExtendable}. The {@link AsyncDataProcessor} engine recognizes this type and only invokes {@link #processAsync(Object)} to start the work - so no worker of the fork join pool is
+ * occupied while the backend call is in flight. As soon as the returned stage completes the engine continues with the context snapshot of the caller applied again: the exception handler of the data
+ * processor is invoked, concurrent entity updates are applied and - in {@link DataProcessorExecutionMode#DEPENDENCY_DRIVEN} mode - the dependent data processors are scheduled.<br>
+ * <br>
+ * Data processors with a bulkhead, coalescing, result caching or hedging are invoked via the blocking {@link #process(Object)} instead. The same applies to a deadline in
+ * {@link DataProcessorExecutionMode#DEPENDENCY_DRIVEN} mode: the worker waits for the returned stage but still never executes the backend call itself.
+ *
+ * @param <E>
+ *            The supported entity type
+ * @param <C>
+ *            The supported context type
+ */
+public interface NonBlockingDataProcessor<E, C> extends DataProcessor<E, C> {
+    /**
+     * Starts the work of this data processor without waiting for its outcome. A <code>null</code> result or a stage completed with <code>null</code> denotes that the entity does not need any update.
+     *
+     * @param context
+     * @return The stage completed with the entity updater
+     * @throws Exception
+     *             Is handled exactly like a stage completed exceptionally
+     */
+    CompletionStage<CheckedConsumer<E>> processAsync(C context) throws Exception;
+
+    @Override
+    default CheckedConsumer<E> process(C context) throws Exception {
+        var stage = processAsync(context);
+        if (stage == null) {
+            return null;
+        }
+        try {
+            return stage.toCompletableFuture()
+                    .get();
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.threadlys.streams.impl;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -15,15 +16,33 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.function.BiFunction;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -31,21 +50,37 @@ import java.util.stream.Collectors;
 
 import org.threadlys.threading.ContextSnapshot;
 import org.threadlys.threading.ContextSnapshotFactory;
+import org.threadlys.threading.TransferrableThreadLocal;
+import org.threadlys.threading.TransferrableThreadLocalProvider;
+import org.threadlys.threading.TransferrableThreadLocals;
 import org.threadlys.threading.impl.ForkJoinPoolGuard;
 import org.threadlys.utils.StateRevert;
+import org.threadlys.utils.StateRevertChain;
 import org.threadlys.utils.ListenersMapListAdapter;
 import org.threadlys.utils.SneakyThrowUtil;
 import org.threadlys.utils.DefaultStateRevert;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.stereotype.Component;
 
 import org.threadlys.streams.AsyncDataProcessor;
+import org.threadlys.streams.BatchDataProcessor;
 import org.threadlys.streams.CheckedConsumer;
 import org.threadlys.streams.DataProcessor;
 import org.threadlys.streams.DataProcessorContext;
 import org.threadlys.streams.DataProcessorExceptionHandler;
+import org.threadlys.streams.DataProcessorExecutionMode;
+import org.threadlys.streams.DataProcessorExecutionListener;
 import org.threadlys.streams.DataProcessorExtendable;
+import org.threadlys.streams.DataProcessorFailure;
+import org.threadlys.streams.DataProcessorPlan;
+import org.threadlys.streams.DataProcessorResultCache;
+import org.threadlys.streams.DataProcessorTimeoutException;
 import org.threadlys.streams.DataScope;
+import org.threadlys.streams.DataProcessingResult;
+import org.threadlys.streams.Either;
+import org.threadlys.streams.LazyDataProcessing;
+import org.threadlys.streams.NonBlockingDataProcessor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 
@@ -59,8 +94,97 @@ import lombok.extern.slf4j.Slf4j;
 @SuppressWarnings({ "PMD.UnnecessaryCast", "PMD.FormalParameterNamingConventions", "checkstyle:IllegalCatch" })
 @Slf4j
 @Component
-public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessorExtendable {
-    private static final float BUCKET_LOAD_FACTOR = 0.75f;
+public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessorExtendable, TransferrableThreadLocalProvider {
+    private static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    private static final int DEFAULT_MAX_CACHED_PLANS = 1024;
+
+    private static final int PLAN_CACHE_INITIAL_CAPACITY = 16;
+
+    private static final float PLAN_CACHE_LOAD_FACTOR = 0.75f;
+
+    private static final int DEFAULT_RESULT_CACHE_SIZE = 10000;
+
+    private static final int DEFAULT_SEQUENTIAL_TASK_THRESHOLD = 0;
+
+    private static final long DEFAULT_SEQUENTIAL_COST_THRESHOLD_MICROS = 0;
+
+    /**
+     * Represents a cached <code>null</code> entity updater as the result cache does not store null values
+     */
+    protected static final CheckedConsumer<?> NO_ENTITY_UPDATE = entity -> {
+        // intended blank
+    };
+
+    /**
+     * Marks the absence of a deadline in terms of {@link System#nanoTime()}
+     */
+    protected static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    /**
+     * Times out stage tasks at their deadline. A timeout only flags the stage task and interrupts its runner, so a single daemon thread suffices for all instances
+     */
+    protected static final ScheduledThreadPoolExecutor TIMEOUT_SCHEDULER = createTimeoutScheduler();
+
+    protected static ScheduledThreadPoolExecutor createTimeoutScheduler() {
+        var scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            var thread = new Thread(runnable, "threadly-stage-task-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // most stage tasks finish in time. their cancelled timeouts must not pile up until their deadline
+        scheduler.setRemoveOnCancelPolicy(true);
+        return scheduler;
+    }
+
+    @Value
+    public static class DataProcessorPlanKey {
+        Class<?> entityType;
+
+        Set<DataScope> dataScopes;
+    }
+
+    /**
+     * Identifies interchangeable executions of a data processor - see {@link DataProcessorExtendable#registerDataProcessorCoalescing(DataProcessor)} and
+     * {@link DataProcessorExtendable#registerDataProcessorResultCaching(DataProcessor, Duration)}
+     */
+    @Value
+    public static class InvocationKey {
+        DataProcessor<?, ?> dataProcessor;
+
+        Object domainRef;
+
+        Collection<DataScope> dataScopes;
+    }
+
+    /**
+     * The shared result of an in-flight execution of a coalescing data processor
+     */
+    @SuppressWarnings("rawtypes")
+    protected static class InFlightProcess extends CompletableFuture<CheckedConsumer> {
+        /**
+         * The in-flight execution that issued this one - on the same or on a forked thread. Null if there is none
+         */
+        protected final InFlightProcess parent;
+
+        public InFlightProcess(InFlightProcess parent) {
+            this.parent = parent;
+        }
+
+        /**
+         * @param inFlightProcess
+         *            May be null
+         * @return true if the given in-flight execution is this one or has been issued by this one
+         */
+        public boolean isAncestorOf(InFlightProcess inFlightProcess) {
+            for (var current = inFlightProcess; current != null; current = current.parent) {
+                if (current == this) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
 
     @SuppressWarnings("rawtypes")
     public static class ConfigurationState {
@@ -76,17 +200,128 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
         @Getter
         protected final Map<DataProcessor, List<? super DataProcessorExceptionHandler>> dataProcessorToExceptionHandlerMap = new LinkedHashMap<>();
 
+        @Getter
+        protected final Map<DataProcessor, List<? super Duration>> dataProcessorToTimeoutMap = new LinkedHashMap<>();
+
+        @Getter
+        protected final Set<DataProcessor> coalescingDataProcessors = new HashSet<>();
+
+        @Getter
+        protected final Map<DataProcessor, List<? super Duration>> dataProcessorToTimeToLiveMap = new LinkedHashMap<>();
+
+        @Getter
+        protected final Set<DataProcessor> concurrentEntityUpdateDataProcessors = new HashSet<>();
+
+        @Getter
+        protected final Map<DataProcessor, List<? super Duration>> dataProcessorToCostEstimateMap = new LinkedHashMap<>();
+
+        @Getter
+        protected final Map<DataProcessor, DataProcessorBulkhead> dataProcessorToBulkheadMap = new LinkedHashMap<>();
+
+        @Getter
+        protected final Map<DataProcessor, List<? super Double>> dataProcessorToHedgingPercentileMap = new LinkedHashMap<>();
+
+        /**
+         * The bulkheads are shared by all subsequent configuration states as they keep track of the running tasks
+         */
+        @Getter
+        protected final Map<String, DataProcessorBulkhead> nameToBulkheadMap = new LinkedHashMap<>();
+
+        @Getter
+        protected final List<DataProcessorExecutionListener> executionListeners = new ArrayList<>();
+
+        /**
+         * All execution listeners combined into one. Null if there is none
+         */
+        @Getter
+        protected DataProcessorExecutionListener executionListener;
+
         protected Map<DataProcessor, Set<DataScope>> dataProcessorToRequiredDataScopesCascadeMap;
 
+        /**
+         * Assigns the ordinals of all data scope bitsets. It is shared by all subsequent configuration states so that bitsets remain comparable across configuration changes.
+         */
+        @Getter
+        protected final DataScopeRegistry dataScopeRegistry;
+
+        protected volatile Map<DataProcessor, long[]> dataProcessorToDataScopeBitsMap;
+
+        protected volatile Map<DataProcessor, long[]> dataProcessorToRequiredDataScopeBitsCascadeMap;
+
+        protected volatile Map<Class<?>, Map<DataProcessor, Integer>> entityTypeToDataProcessorToLevelMap;
+
+        /**
+         * Caches the compiled data processor plans of this configuration. As each registration creates a new configuration state the cache is implicitly invalidated on any configuration change.
+         * Created on first use
+         */
+        protected volatile Map<DataProcessorPlanKey, DataProcessorPlanImpl<?>> dataProcessorPlanCache;
+
         public ConfigurationState() {
-            // intended blank
+            dataScopeRegistry = new DataScopeRegistry();
+        }
+
+        /**
+         * Returns the plan cache of this configuration state. It evicts the least recently used plan as soon as the given maximum size is exceeded - so plans of rarely requested data scope
+         * combinations do not displace the frequently requested ones
+         *
+         * @param maxSize
+         * @return
+         */
+        @SuppressWarnings("serial")
+        public Map<DataProcessorPlanKey, DataProcessorPlanImpl<?>> getDataProcessorPlanCache(int maxSize) {
+            var dataProcessorPlanCache = this.dataProcessorPlanCache;
+            if (dataProcessorPlanCache != null) {
+                return dataProcessorPlanCache;
+            }
+            synchronized (this) {
+                if (this.dataProcessorPlanCache == null) {
+                    this.dataProcessorPlanCache = Collections.synchronizedMap(new LinkedHashMap<>(PLAN_CACHE_INITIAL_CAPACITY, PLAN_CACHE_LOAD_FACTOR, true) {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<DataProcessorPlanKey, DataProcessorPlanImpl<?>> eldest) {
+                            return size() > maxSize;
+                        }
+                    });
+                }
+                return this.dataProcessorPlanCache;
+            }
         }
 
         public ConfigurationState(ConfigurationState original) {
+            dataScopeRegistry = original.getDataScopeRegistry();
             entityTypeToScopeToDataProcessorMap.putAll(original.getEntityTypeToScopeToDataProcessorMap());
             dataProcessorToDataScopesMap.putAll(original.getDataProcessorToDataScopesMap());
             dataProcessorToRequiredDataScopesMap.putAll(original.getDataProcessorToRequiredDataScopesMap());
             dataProcessorToExceptionHandlerMap.putAll(original.getDataProcessorToExceptionHandlerMap());
+            dataProcessorToTimeoutMap.putAll(original.getDataProcessorToTimeoutMap());
+            coalescingDataProcessors.addAll(original.getCoalescingDataProcessors());
+            dataProcessorToTimeToLiveMap.putAll(original.getDataProcessorToTimeToLiveMap());
+            concurrentEntityUpdateDataProcessors.addAll(original.getConcurrentEntityUpdateDataProcessors());
+            dataProcessorToCostEstimateMap.putAll(original.getDataProcessorToCostEstimateMap());
+            dataProcessorToBulkheadMap.putAll(original.getDataProcessorToBulkheadMap());
+            dataProcessorToHedgingPercentileMap.putAll(original.getDataProcessorToHedgingPercentileMap());
+            nameToBulkheadMap.putAll(original.getNameToBulkheadMap());
+            executionListeners.addAll(original.getExecutionListeners());
+            executionListener = original.getExecutionListener();
+        }
+
+        public void addExecutionListener(DataProcessorExecutionListener executionListener) {
+            executionListeners.add(executionListener);
+            this.executionListener = combineExecutionListeners(executionListeners);
+        }
+
+        public void removeExecutionListener(DataProcessorExecutionListener executionListener) {
+            executionListeners.remove(executionListener);
+            this.executionListener = combineExecutionListeners(executionListeners);
+        }
+
+        protected static DataProcessorExecutionListener combineExecutionListeners(List<DataProcessorExecutionListener> executionListeners) {
+            if (executionListeners.isEmpty()) {
+                return null;
+            }
+            if (executionListeners.size() == 1) {
+                return executionListeners.get(0);
+            }
+            return new CompositeDataProcessorExecutionListener(executionListeners.toArray(DataProcessorExecutionListener[]::new));
         }
 
         public Map<DataProcessor, Set<DataScope>> getDataProcessorToRequiredDataScopesCascadeMap() {
@@ -148,6 +383,123 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
             }
         }
 
+        /**
+         * Returns the provided data scopes of each data processor as bitset of the {@link #getDataScopeRegistry()}
+         *
+         * @return
+         */
+        public Map<DataProcessor, long[]> getDataProcessorToDataScopeBitsMap() {
+            if (dataProcessorToDataScopeBitsMap == null) {
+                buildDataScopeBitsMaps();
+            }
+            return dataProcessorToDataScopeBitsMap;
+        }
+
+        /**
+         * Returns the transitively required data scopes of each data processor as bitset of the {@link #getDataScopeRegistry()}
+         *
+         * @return
+         */
+        public Map<DataProcessor, long[]> getDataProcessorToRequiredDataScopeBitsCascadeMap() {
+            if (dataProcessorToRequiredDataScopeBitsCascadeMap == null) {
+                buildDataScopeBitsMaps();
+            }
+            return dataProcessorToRequiredDataScopeBitsCascadeMap;
+        }
+
+        protected synchronized void buildDataScopeBitsMaps() {
+            if (dataProcessorToRequiredDataScopeBitsCascadeMap != null) {
+                return;
+            }
+            var dataProcessorToDataScopeBitsMap = new HashMap<DataProcessor, long[]>();
+            getDataProcessorToDataScopesMap().forEach((dataProcessor, dataScopes) -> dataProcessorToDataScopeBitsMap.put(dataProcessor, dataScopeRegistry.registerAll(dataScopes)));
+
+            var dataProcessorToRequiredDataScopeBitsCascadeMap = new HashMap<DataProcessor, long[]>();
+            getDataProcessorToRequiredDataScopesCascadeMap().forEach((dataProcessor, requiredDataScopes) -> dataProcessorToRequiredDataScopeBitsCascadeMap.put(dataProcessor,
+                    dataScopeRegistry.registerAll(requiredDataScopes)));
+
+            this.dataProcessorToDataScopeBitsMap = dataProcessorToDataScopeBitsMap;
+            // assigned last as it serves as the initialization flag
+            this.dataProcessorToRequiredDataScopeBitsCascadeMap = dataProcessorToRequiredDataScopeBitsCascadeMap;
+        }
+
+        /**
+         * Returns the topological level of each data processor per entity type: zero if it does not depend on any other data processor of the same entity type - otherwise one more than the highest
+         * level of the data processors it depends on. Data processors of the same level never depend on each other.
+         *
+         * @return
+         * @throws IllegalStateException
+         *             If the data processors of any entity type depend on each other cyclically
+         */
+        public Map<Class<?>, Map<DataProcessor, Integer>> getEntityTypeToDataProcessorToLevelMap() {
+            if (entityTypeToDataProcessorToLevelMap == null) {
+                buildDataProcessorLevels();
+            }
+            return entityTypeToDataProcessorToLevelMap;
+        }
+
+        protected synchronized void buildDataProcessorLevels() {
+            if (entityTypeToDataProcessorToLevelMap != null) {
+                return;
+            }
+            var dataProcessorToDataScopeBitsMap = getDataProcessorToDataScopeBitsMap();
+            var dataProcessorToRequiredDataScopeBitsMap = getDataProcessorToRequiredDataScopeBitsCascadeMap();
+            var entityTypeToDataProcessorToLevelMap = new HashMap<Class<?>, Map<DataProcessor, Integer>>();
+            getEntityTypeToScopeToDataProcessorMap().forEach((entityType, scopeToDataProcessorMap) -> {
+                var dataProcessors = scopeToDataProcessorMap.values()
+                        .stream()//
+                        .flatMap(List::stream)//
+                        .distinct()//
+                        .collect(Collectors.toList());
+                var dataProcessorToLevelMap = new HashMap<DataProcessor, Integer>();
+                for (var dataProcessor : dataProcessors) {
+                    resolveDataProcessorLevel(dataProcessor, dataProcessors, dataProcessorToDataScopeBitsMap, dataProcessorToRequiredDataScopeBitsMap, dataProcessorToLevelMap,
+                            new LinkedHashSet<>());
+                }
+                entityTypeToDataProcessorToLevelMap.put(entityType, dataProcessorToLevelMap);
+            });
+            this.entityTypeToDataProcessorToLevelMap = entityTypeToDataProcessorToLevelMap;
+        }
+
+        protected int resolveDataProcessorLevel(DataProcessor dataProcessor, List<DataProcessor> dataProcessors, Map<DataProcessor, long[]> dataProcessorToDataScopeBitsMap,
+                Map<DataProcessor, long[]> dataProcessorToRequiredDataScopeBitsMap, Map<DataProcessor, Integer> dataProcessorToLevelMap, Set<DataProcessor> dependencyPath) {
+            var level = dataProcessorToLevelMap.get(dataProcessor);
+            if (level != null) {
+                return level;
+            }
+            if (!dependencyPath.add(dataProcessor)) {
+                var path = new ArrayList<>(dependencyPath);
+                var cycle = path.subList(path.indexOf(dataProcessor), path.size());
+                throw new IllegalStateException("Cyclic data processor dependency: " + cycle.stream()
+                        .map(String::valueOf)
+                        .collect(Collectors.joining(" -> ")) + " -> " + dataProcessor);
+            }
+            var newLevel = 0;
+            var requiredDataScopeBits = dataProcessorToRequiredDataScopeBitsMap.get(dataProcessor);
+            if (requiredDataScopeBits != null && !DataScopeRegistry.isEmpty(requiredDataScopeBits)) {
+                for (var requiredDataProcessor : dataProcessors) {
+                    var dataScopeBits = dataProcessorToDataScopeBitsMap.get(requiredDataProcessor);
+                    if (requiredDataProcessor != dataProcessor && dataScopeBits != null && DataScopeRegistry.intersects(dataScopeBits, requiredDataScopeBits)) {
+                        newLevel = Math.max(newLevel, resolveDataProcessorLevel(requiredDataProcessor, dataProcessors, dataProcessorToDataScopeBitsMap,
+                                dataProcessorToRequiredDataScopeBitsMap, dataProcessorToLevelMap, dependencyPath) + 1);
+                    }
+                }
+            }
+            dependencyPath.remove(dataProcessor);
+            dataProcessorToLevelMap.put(dataProcessor, newLevel);
+            return newLevel;
+        }
+
+        /**
+         * Builds the topological levels of all data processors eagerly
+         *
+         * @throws IllegalStateException
+         *             If the data processors of any entity type depend on each other cyclically
+         */
+        public void validateDependencies() {
+            getEntityTypeToDataProcessorToLevelMap();
+        }
+
         protected void unfoldDataScope(Object dataScope, Consumer<DataScope> dataScopeHandler) {
             unfoldDataScopeIntern(dataScope, dataScopeHandler, new IdentityHashMap<>());
         }
@@ -224,9 +576,6 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
                         .getName());
                 return;
             }
-            if (alreadyProcessedSet.size() > 10) {
-                throw new IllegalStateException();
-            }
             var dataProcessorToRequiredDataScopesMap = getDataProcessorToRequiredDataScopesMap();
 
             var requiredDataScopes = dataProcessorToRequiredDataScopesMap.getOrDefault(dataProcessor, List.of());
@@ -254,6 +603,8 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
                             printDataProcessorTreeIntern(requiredDataProcessor, scopeToDataProcessorMap, requiredDataProcessorJson, alreadyProcessedSet);
                         });
             });
+            // the set tracks the current path only: a data processor required on several paths is no cycle
+            alreadyProcessedSet.remove(dataProcessor);
         }
     }
 
@@ -267,7 +618,25 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
 
         protected final Function<E, C> contextBuilder;
 
-        protected final Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes;
+        /**
+         * Tracks the used data scopes of all processed domain objects. May be null
+         */
+        protected final UsedDataScopeTracker usedDataScopeTracker;
+
+        /**
+         * Receives each entity once all its data processors have finished. May be null
+         */
+        protected final Consumer<? super E> entityProcessedConsumer;
+
+        /**
+         * The deadline of the whole execution in terms of {@link System#nanoTime()}. {@link AsyncDataProcessorImpl#NO_DEADLINE} if there is none
+         */
+        protected final long deadlineNanos;
+
+        /**
+         * Collects the failures of data processors per entity instead of aborting the whole execution on the first failure. May be null
+         */
+        protected final Queue<DataProcessorFailure<E>> failures;
     }
 
     @Value
@@ -278,414 +647,2407 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
 
         E entity;
 
-        Supplier<Callable<CheckedConsumer<E>>> supplier;
-    }
+        Collection<DataScope> dataScopes;
 
-    protected ConfigurationState state = new ConfigurationState();
+        long[] dataScopeBits;
 
-    @Autowired
-    protected ContextSnapshotFactory contextSnapshotFactory;
+        DataProcessorExceptionHandler exceptionHandler;
 
-    @Autowired
-    protected ForkJoinPoolGuard forkJoinPoolGuard;
+        /**
+         * The registered timeout of the data processor in nanoseconds. Zero if there is none
+         */
+        long timeoutNanos;
 
-    @Autowired
-    protected SneakyThrowUtil sneakyThrowUtil;
+        /**
+         * Whether the entity updater of the data processor may be applied directly on the worker - see {@link DataProcessorExtendable#registerDataProcessorConcurrentEntityUpdate(DataProcessor)}
+         */
+        boolean concurrentEntityUpdate;
 
-    protected final Lock readLock;
+        /**
+         * The registered cost estimate of the data processor in nanoseconds. Zero if there is none
+         */
+        long costEstimateNanos;
 
-    protected final Lock writeLock;
+        /**
+         * The bulkhead limiting the concurrent executions of the data processor. May be null
+         */
+        DataProcessorBulkhead bulkhead;
 
-    public AsyncDataProcessorImpl() {
-        var rwLock = new ReentrantReadWriteLock();
-        readLock = rwLock.readLock();
-        writeLock = rwLock.writeLock();
-    }
+        /**
+         * Counts the data processors of the entity which have not yet finished. Only maintained if the caller is interested in each processed entity
+         */
+        AtomicInteger pendingDataProcessorCountOfEntity;
 
-    @Override
-    public <E, C extends DataProcessorContext> void processAllEntities(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes, Function<E, C> contextBuilder,
-            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
-        Objects.requireNonNull(entityType, "entityType must be valid");
-        Objects.requireNonNull(contextBuilder, "contextBuilder must be valid");
+        /**
+         * The index of the data processor in the plan of the entity
+         */
+        int dataProcessorIndex;
 
-        if (entityList == null || entityList.isEmpty()) {
-            // nothing to do
-            return;
-        }
-        if (dataScopes == null || dataScopes.isEmpty()) {
-            // nothing to do
-            return;
-        }
+        /**
+         * Tracks the failed data processors of the entity. Only maintained if the caller is interested in failures per entity
+         */
+        EntityFailureTracker failureTracker;
 
-        var effectiveEntityToUsedDataScopes = entityToUsedDataScopes != null ? entityToUsedDataScopes : new ConcurrentHashMap<Object, Map<Object, Set<DataScope>>>();
-        var executionState = new ExecutionState<>(this.state, entityType, entityList, contextBuilder, effectiveEntityToUsedDataScopes);
-        var applicableProcessorsChain = resolveApplicableDataProcessorsChain(dataScopes, executionState);
-        applyDataProcessorsToEntities(entity -> applicableProcessorsChain, executionState);
+        Supplier<Callable<CheckedConsumer<E>>> supplier;
     }
 
-    @Override
-    public <E, C extends DataProcessorContext> void processAllEntities(Class<E> entityType, Collection<?> entityList, Function<E, Collection<DataScope>> dataScopeSupplier,
-            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
-        Objects.requireNonNull(entityType, "entityType must be valid");
-        Objects.requireNonNull(contextBuilder, "contextBuilder must be valid");
+    /**
+     * Tracks the failed data processors of a single entity - see {@link AsyncDataProcessor#tryProcessAllEntities(Class, Collection, Collection, Function, Map)}. A data processor of the entity is
+     * skipped as soon as any of its predecessors failed or has been skipped itself. As predecessors always finish before their successors start this covers all transitive predecessors as well
+     */
+    protected static class EntityFailureTracker {
+        /**
+         * The data processor indices each data processor with the same index directly depends on
+         */
+        protected final int[][] predecessors;
 
-        if (entityList == null || entityList.isEmpty()) {
-            // nothing to do
-            return;
+        protected final boolean[] failedDataProcessors;
+
+        public EntityFailureTracker(int[][] predecessors) {
+            this.predecessors = predecessors;
+            failedDataProcessors = new boolean[predecessors.length];
         }
-        if (dataScopeSupplier == null) {
-            // nothing to do
-            return;
+
+        public synchronized void flagFailed(int dataProcessorIndex) {
+            failedDataProcessors[dataProcessorIndex] = true;
         }
 
-        var effectiveEntityToUsedDataScopes = entityToUsedDataScopes != null ? entityToUsedDataScopes : new ConcurrentHashMap<Object, Map<Object, Set<DataScope>>>();
-        var executionState = new ExecutionState<>(this.state, entityType, entityList, contextBuilder, effectiveEntityToUsedDataScopes);
-        applyDataProcessorsToEntities(entity -> {
-            var dataScopes = dataScopeSupplier.apply(entity);
-            return resolveApplicableDataProcessorsChain(dataScopes, executionState);
-        }, executionState);
+        /**
+         * Evaluates whether the given data processor has to be skipped due to a failed predecessor. A skipped data processor is flagged as failed so that its own successors are skipped as well
+         *
+         * @param dataProcessorIndex
+         * @return
+         */
+        public synchronized boolean isSkipped(int dataProcessorIndex) {
+            for (var predecessorIndex : predecessors[dataProcessorIndex]) {
+                if (failedDataProcessors[predecessorIndex]) {
+                    failedDataProcessors[dataProcessorIndex] = true;
+                    return true;
+                }
+            }
+            return false;
+        }
     }
 
-    protected <E, C extends DataProcessorContext> void applyDataProcessorsToEntities(Function<E, List<Map<DataProcessor<E, C>, Collection<DataScope>>>> applicableProcessorsProvider,
-            ExecutionState<E, C> executionState) {
-        var stageToRunnableSuppliersList = buildDataProcessorStages(applicableProcessorsProvider, executionState);
-        executeDataProcessorStages(stageToRunnableSuppliersList);
-    }
+    /**
+     * A node of the dependency graph used in {@link DataProcessorExecutionMode#DEPENDENCY_DRIVEN} mode. A node executes a single data processor for a single entity - or for a chunk of entities in
+     * case of a {@link BatchDataProcessor}. It is submitted as soon as all its predecessor nodes have finished.
+     */
+    protected static class DataProcessorNode<E, C extends DataProcessorContext> {
+        protected final DataProcessor<E, C> dataProcessor;
 
-    protected <E, C extends DataProcessorContext> void executeDataProcessorStages(List<List<RunnableSupplier<E, C>>> stageToRunnableSuppliersList) {
-        var revert = DefaultStateRevert.empty();
-        try {
-            var fjp = forkJoinPoolGuard.currentForkJoinPool();
-            if (fjp == null) {
-                fjp = forkJoinPoolGuard.getDefaultForkJoinPool();
-                revert = forkJoinPoolGuard.pushForkJoinPool(fjp);
-            }
-            for (var runnableSuppliersList : stageToRunnableSuppliersList) {
-                var callables = new ArrayList<Callable<CheckedConsumer<E>>>(runnableSuppliersList.size());
+        protected final List<RunnableSupplier<E, C>> items = new ArrayList<>(1);
 
-                // this map stores us the info for which callable, leading to a future handle, which entityUpdater is connected to which entity
-                var indexToEntityMap = new HashMap<Integer, E>((int) (runnableSuppliersList.size() / BUCKET_LOAD_FACTOR) + 1, BUCKET_LOAD_FACTOR);
+        protected final List<DataProcessorNode<E, C>> successors = new ArrayList<>(1);
 
-                buildIndexToEntityMap(runnableSuppliersList, callables, indexToEntityMap);
+        protected final AtomicInteger pendingPredecessorCount = new AtomicInteger();
 
-                if (callables.isEmpty()) {
-                    continue;
-                }
-                var futures = fjp.invokeAll(callables);
+        // only needed while building the graph to avoid redundant edges
+        protected Set<DataProcessorNode<E, C>> predecessors;
 
-                // wait for all futures to concurrently finish, but also help with current thread
-                // this is especially critical as our current thread might be the last & only unblocked thread
-                // of the current ForkJoinPool
-                for (var future : futures) {
-                    while (!future.isDone() && !future.isCancelled()) {
-                        fjp.awaitQuiescence(1, TimeUnit.MILLISECONDS);
-                    }
-                }
-                // now we know all futures have been finished
-                updateEntities(futures, indexToEntityMap, fjp);
-            }
-        } finally {
-            revert.revert();
+        /**
+         * When the node has been submitted in terms of {@link System#nanoTime()}
+         */
+        protected long submittedNanos;
+
+        public DataProcessorNode(DataProcessor<E, C> dataProcessor) {
+            this.dataProcessor = dataProcessor;
         }
     }
 
-    protected <E, C extends DataProcessorContext> void buildIndexToEntityMap(List<RunnableSupplier<E, C>> runnableSuppliersList, List<Callable<CheckedConsumer<E>>> callables,
-            Map<Integer, E> indexToEntityMap) {
-        for (int a = 0, size = runnableSuppliersList.size(); a < size; a++) {
-            var runnableSupplier = runnableSuppliersList.get(a);
-            var entity = runnableSupplier.getEntity();
-            if (!runnableSupplier.getDataProcessor()
-                    .expectsExecution(entity, runnableSupplier.getDataProcessorContext())) {
-                continue;
-            }
-            var callable = runnableSupplier.getSupplier()
-                    .get();
-            if (callable == null) {
-                continue;
-            }
-            int index = callables.size();
-            callables.add(callable);
-            indexToEntityMap.put(Integer.valueOf(index), entity);
+    /**
+     * Executes a single item of a stage - or a chunk of items of a {@link BatchDataProcessor} - and keeps the entity updater of each item as outcome. Unlike the task returned by
+     * {@link ForkJoinPool#submit(Callable)} it does not wrap checked exceptions of the callable.<br>
+     * <br>
+     * If the task has a deadline it is {@link #timeout() timed out} by the {@link AsyncDataProcessorImpl#TIMEOUT_SCHEDULER}. Whichever of both finishes first wins: a timed out task discards the
+     * outcome of its callable and a finished task can no longer time out. Either way the {@link #completion} is completed.
+     */
+    protected static class StageTask<E, C extends DataProcessorContext> implements Runnable {
+        /**
+         * Processes the single item of this task. Null for a chunk
+         */
+        protected final Callable<CheckedConsumer<E>> callable;
+
+        /**
+         * Processes all items of a chunk of a {@link BatchDataProcessor} and returns one entity updater per item. Null for a single item
+         */
+        protected final Callable<List<CheckedConsumer<E>>> batchCallable;
+
+        /**
+         * The items processed by this task. More than one in case of a chunk of a {@link BatchDataProcessor}. All items belong to the same data processor, so they share its timeout, exception
+         * handler, bulkhead and cost estimate
+         */
+        protected final List<RunnableSupplier<E, C>> items;
+
+        /**
+         * Whether the entity updaters are applied by the worker right after the callable instead of by the waiting thread
+         */
+        protected final boolean concurrentEntityUpdate;
+
+        /**
+         * The deadline of this task in terms of {@link System#nanoTime()}. {@link AsyncDataProcessorImpl#NO_DEADLINE} if there is none
+         */
+        protected final long deadlineNanos;
+
+        /**
+         * Applied around a concurrent entity update, as the callable already reverted its own application of the snapshot at that point
+         */
+        protected final ContextSnapshot cs;
+
+        protected final AtomicBoolean finished = new AtomicBoolean();
+
+        /**
+         * Completed as soon as the outcome of this task is stored or the task timed out. Never completed exceptionally
+         */
+        protected final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        /**
+         * The expected runtime of the callable in nanoseconds. Stage tasks with a higher cost estimate are submitted first
+         */
+        protected long costEstimateNanos;
+
+        /**
+         * The observed runtime of the callable in nanoseconds. Zero if it did not finish in time
+         */
+        protected long elapsedNanos;
+
+        /**
+         * When this task has been handed over for execution in terms of {@link System#nanoTime()}
+         */
+        protected long submittedNanos;
+
+        /**
+         * When the callable has been started in terms of {@link System#nanoTime()}. Zero if it did not start (yet)
+         */
+        protected volatile long startedNanos;
+
+        protected Future<?> future;
+
+        /**
+         * The scheduled {@link #timeout()} at the deadline of this task. Null if there is no deadline
+         */
+        protected ScheduledFuture<?> timeoutFuture;
+
+        protected Thread runner;
+
+        protected boolean timedOut;
+
+        /**
+         * The outcome of the callable: the entity updater of each item at the same index as the item. Null if there is nothing to apply
+         */
+        protected List<CheckedConsumer<E>> entityUpdaters;
+
+        protected Throwable failure;
+
+        public StageTask(Callable<CheckedConsumer<E>> callable, RunnableSupplier<E, C> item, long deadlineNanos, ContextSnapshot cs) {
+            this(callable, null, List.of(item), deadlineNanos, cs);
         }
-    }
 
-    protected <E> void updateEntities(List<Future<CheckedConsumer<E>>> futures, Map<Integer, E> indexToEntityMap, ForkJoinPool fjp) {
-        for (int a = 0, size = futures.size(); a < size; a++) {
+        public StageTask(Callable<List<CheckedConsumer<E>>> batchCallable, List<RunnableSupplier<E, C>> chunk, long deadlineNanos, ContextSnapshot cs) {
+            this(null, batchCallable, chunk, deadlineNanos, cs);
+        }
+
+        protected StageTask(Callable<CheckedConsumer<E>> callable, Callable<List<CheckedConsumer<E>>> batchCallable, List<RunnableSupplier<E, C>> items, long deadlineNanos, ContextSnapshot cs) {
+            this.callable = callable;
+            this.batchCallable = batchCallable;
+            this.items = items;
+            this.deadlineNanos = deadlineNanos;
+            this.cs = cs;
+            concurrentEntityUpdate = items.get(0)
+                    .isConcurrentEntityUpdate();
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (finished.get()) {
+                    // timed out before it even started
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
             try {
-                var entityUpdater = retrieveEntityUpdater(futures.get(a), fjp);
-                if (entityUpdater != null) {
-                    var entity = indexToEntityMap.get(a);
-                    entityUpdater.accept(entity);
+                List<CheckedConsumer<E>> entityUpdaters = null;
+                Throwable failure = null;
+                var startNanos = System.nanoTime();
+                startedNanos = startNanos;
+                try {
+                    entityUpdaters = batchCallable != null ? batchCallable.call() : toEntityUpdaters(callable.call());
+                } catch (Throwable e) {
+                    failure = e;
+                }
+                finish(entityUpdaters, failure, startNanos);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    if (timedOut) {
+                        // the interrupt was meant for the callable only. the worker itself must not keep it
+                        Thread.interrupted();
+                    }
                 }
-            } catch (Throwable e) {
-                var ex = sneakyThrowUtil.mergeStackTraceWithCause(e);
-                throw sneakyThrowUtil.sneakyThrow(ex);
             }
         }
-    }
 
-    protected <E> CheckedConsumer<E> retrieveEntityUpdater(Future<CheckedConsumer<E>> future, ForkJoinPool fjp) throws Throwable {
-        while (!fjp.isShutdown()) {
-            try {
-                return future.get();
-            } catch (InterruptedException e) {
-                Thread.interrupted();
-            }
+        /**
+         * Whether this task can be {@link #start() started} instead of being run on a thread of its own. This is not the case within a bulkhead, as its permit would be released before the data
+         * processor completes
+         *
+         * @return
+         */
+        public boolean isNonBlocking() {
+            return callable instanceof NonBlockingInvocation && items.get(0)
+                    .getBulkhead() == null;
         }
-        return null;
-    }
 
-    @SuppressWarnings("unchecked")
-    protected <E, C extends DataProcessorContext> List<List<RunnableSupplier<E, C>>> buildDataProcessorStages(
-            Function<E, List<Map<DataProcessor<E, C>, Collection<DataScope>>>> applicableProcessorsProvider, ExecutionState<E, C> executionState) {
-        var contextBuilder = executionState.getContextBuilder();
-        var stageToRunnableSuppliersList = new ArrayList<List<RunnableSupplier<E, C>>>();
-        var cs = contextSnapshotFactory.createSnapshot();
+        /**
+         * Starts the {@link NonBlockingInvocation} of this task on the current thread. The outcome is stored by the completion callback of the data processor - with the context snapshot applied
+         * again for a concurrent entity update
+         *
+         * @return Completed as soon as the outcome of this task is stored
+         */
+        @SuppressWarnings("unchecked")
+        public CompletableFuture<Void> start() {
+            var invocation = (NonBlockingInvocation<E, C>) callable;
+            var startNanos = System.nanoTime();
+            startedNanos = startNanos;
+            return invocation.callAsync()
+                    .handle((entityUpdater, failure) -> {
+                        finish(toEntityUpdaters(entityUpdater), failure, startNanos);
+                        return null;
+                    });
+        }
 
-        for (var entityObject : executionState.getEntityList()) {
-            if (entityObject == null) {
-                continue;
-            }
-            E entity = (E) entityObject;
-            var dataProcessorContext = contextBuilder.apply(entity);
-            var dataProcessorChainPerEntity = applicableProcessorsProvider.apply(entity);
+        protected List<CheckedConsumer<E>> toEntityUpdaters(CheckedConsumer<E> entityUpdater) {
+            return entityUpdater != null ? List.of(entityUpdater) : null;
+        }
 
-            // merge all data processors for the current entity with the global stage that
-            // processes all entities in a batch-per-stage manner
-            for (int stageLevel = 0, size = dataProcessorChainPerEntity.size(); stageLevel < size; stageLevel++) {
-                if (stageToRunnableSuppliersList.size() <= stageLevel) {
-                    stageToRunnableSuppliersList.add(new ArrayList<>());
+        /**
+         * Applies each of the given entity updaters to the entity of the item at the same index
+         *
+         * @param entityUpdaters
+         *            May be null
+         * @throws Exception
+         */
+        public void updateEntities(List<CheckedConsumer<E>> entityUpdaters) throws Exception {
+            if (entityUpdaters == null) {
+                return;
+            }
+            for (int a = 0, size = entityUpdaters.size(); a < size; a++) {
+                var entityUpdater = entityUpdaters.get(a);
+                if (entityUpdater != null) {
+                    entityUpdater.accept(items.get(a)
+                            .getEntity());
                 }
-                var runnableSuppliersList = stageToRunnableSuppliersList.get(stageLevel);
-                var dataProcessorsPerEntity = dataProcessorChainPerEntity.get(stageLevel);
-                dataProcessorsPerEntity.forEach((dataProcessor, dc) -> {
-                    var runnableSupplier = new RunnableSupplier<E, C>(dataProcessor, dataProcessorContext, entity,
-                            () -> asyncProcess(dataProcessor, dataProcessorContext, entity, dc, executionState, cs));
-                    runnableSuppliersList.add(runnableSupplier);
-                });
             }
         }
-        return stageToRunnableSuppliersList;
-    }
-
-    @SuppressWarnings("unchecked")
-    protected <E, C extends DataProcessorContext> List<Map<DataProcessor<E, C>, Collection<DataScope>>> resolveApplicableDataProcessorsChain(Collection<DataScope> dataScopes,
-            ExecutionState<E, C> executionState) {
-
-        var allApplicableDataProcessors = resolveAllApplicableDataProcessors(dataScopes, executionState);
-        var dataProcessorToRequiredDataScopesMap = executionState.getConfigurationState()
-                .getDataProcessorToRequiredDataScopesCascadeMap();
-        var dataProcessorToDataScopesMap = executionState.getConfigurationState()
-                .getDataProcessorToDataScopesMap();
-        var dataProcessorChain = new ArrayList<Map<DataProcessor<E, C>, Collection<DataScope>>>();
-
-        allApplicableDataProcessors.forEach(dataProcessor -> {
-            var dataScopesOfDataProcessor = (Collection<DataScope>) dataProcessorToDataScopesMap.get(dataProcessor);
-            var requiringDataScopes = dataProcessorToRequiredDataScopesMap.get(dataProcessor);
-
-            boolean dataProcessorInserted = false;
-
-            for (int a = dataProcessorChain.size(); a-- > 0;) {
-                var dataProcessorsPerStage = dataProcessorChain.get(a);
-                var stageIndex = a;
-
-                dataProcessorInserted = dataProcessorsPerStage.entrySet()
-                        .stream()
-                        .anyMatch(entry -> {
-                            var chainedDataProcessor = entry.getKey();
-                            var dataScopesOfChainedDataProcessor = entry.getValue();
-
-                            if (requiringDataScopes != null && tryToAppendToDownstreamStage(dataProcessorToRequiredDataScopesMap, dataProcessorChain, dataProcessor, dataScopesOfDataProcessor,
-                                    requiringDataScopes, stageIndex, dataScopesOfChainedDataProcessor)) {
-                                return true;
-                            }
-                            // so this chained data processor is not required by the current one. but maybe
-                            // it is the other way around
-                            // so let us find out
-                            var dataScopesCascadeOfChainedDataProcessor = dataProcessorToRequiredDataScopesMap.get(chainedDataProcessor);
-                            return tryToAppendToUpstreamStage(dataProcessorToRequiredDataScopesMap, dataProcessorChain, dataProcessor, dataScopesOfDataProcessor, stageIndex,
-                                    dataScopesCascadeOfChainedDataProcessor);
-                        });
 
-                if (dataProcessorInserted) {
-                    break;
+        protected void finish(List<CheckedConsumer<E>> entityUpdaters, Throwable failure, long startNanos) {
+            if (!finished.compareAndSet(false, true)) {
+                // timed out in the meantime so the outcome is discarded
+                return;
+            }
+            elapsedNanos = Math.max(System.nanoTime() - startNanos, 1);
+            if (concurrentEntityUpdate && entityUpdaters != null) {
+                // nothing left for the waiting thread to apply
+                var revert = cs.apply();
+                try {
+                    updateEntities(entityUpdaters);
+                } catch (Throwable e) {
+                    failure = e;
+                } finally {
+                    revert.revert();
                 }
+                entityUpdaters = null;
+            }
+            this.entityUpdaters = entityUpdaters;
+            this.failure = failure;
+            if (timeoutFuture != null) {
+                timeoutFuture.cancel(false);
             }
+            completion.complete(null);
+        }
 
-            if (dataProcessorInserted) {
+        /**
+         * Schedules the {@link #timeout()} of this task at its deadline. Has to be called before this task is run or started
+         */
+        public void scheduleTimeout() {
+            if (deadlineNanos == NO_DEADLINE) {
                 return;
             }
-            // at this point none of the existing chained data processors has any dependency
-            // in any direction to our current one
-            // this means we can queue our current one to the first stage
+            timeoutFuture = TIMEOUT_SCHEDULER.schedule(this::timeout, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
 
-            if (dataProcessorChain.isEmpty()) {
-                dataProcessorChain.add(new LinkedHashMap<DataProcessor<E, C>, Collection<DataScope>>());
+        /**
+         * Flags this task as timed out and interrupts the callable if it is currently running. A {@link #start() started} non-blocking invocation is cancelled instead
+         *
+         * @return false if the task already finished in time
+         */
+        public boolean timeout() {
+            if (!finished.compareAndSet(false, true)) {
+                return false;
             }
-            var stage = dataProcessorChain.get(0);
-            stage.put(dataProcessor, dataScopesOfDataProcessor);
-        });
-        return dataProcessorChain;
-    }
-
-    @SuppressWarnings("rawtypes")
-    protected <E, C extends DataProcessorContext> boolean tryToAppendToDownstreamStage(Map<DataProcessor, Set<DataScope>> dataProcessorToRequiredDataScopesMap,
-            ArrayList<Map<DataProcessor<E, C>, Collection<DataScope>>> dataProcessorChain, DataProcessor<E, C> dataProcessor, Collection<DataScope> dataScopesOfDataProcessor,
-            Set<DataScope> requiringDataScopes, int stageIndex, Collection<DataScope> dataScopesOfChainedDataProcessor) {
-        return requiringDataScopes.stream()//
-                .filter(dataScopesOfChainedDataProcessor::contains)//
-                .map(requiringDataScope -> {
-                    var downstreamStageIndex = stageIndex + 1;
-                    if (dataProcessorChain.size() == downstreamStageIndex) {
-                        // we are currently in the last stage, but require a data processor from it
-                        // so we need a new last stage appended
-                        dataProcessorChain.add(new LinkedHashMap<>());
+            synchronized (this) {
+                timedOut = true;
+                if (runner != null) {
+                    runner.interrupt();
+                }
+            }
+            completion.complete(null);
+            if (callable instanceof NonBlockingInvocation) {
+                // the discarded outcome of the cancelled stage is ignored by finish()
+                ((NonBlockingInvocation<?, ?>) callable).cancel();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * One of the two competing invocations of a hedged data processor. The first finished invocation completes the shared outcome and interrupts its competitor. As the waiting thread is released by the
+     * outcome the interrupt is only a courtesy: a competitor ignoring it delays nobody
+     */
+    protected static class HedgedInvocation<E, C extends DataProcessorContext> implements Runnable {
+        protected final DataProcessor<E, C> dataProcessor;
+
+        protected final C processorContext;
+
+        protected final DataProcessorLatencyTracker latencyTracker;
+
+        protected final CompletableFuture<CheckedConsumer<E>> outcome;
+
+        /**
+         * The context snapshot to apply on the executing thread. Null if it is already applied
+         */
+        protected final ContextSnapshot cs;
+
+        protected HedgedInvocation<E, C> competitor;
+
+        /**
+         * When the data processor has been invoked in terms of {@link System#nanoTime()}. Zero if it did not start (yet)
+         */
+        protected volatile long startNanos;
+
+        protected Thread runner;
+
+        protected boolean cancelled;
+
+        public HedgedInvocation(DataProcessor<E, C> dataProcessor, C processorContext, DataProcessorLatencyTracker latencyTracker, CompletableFuture<CheckedConsumer<E>> outcome,
+                ContextSnapshot cs) {
+            this.dataProcessor = dataProcessor;
+            this.processorContext = processorContext;
+            this.latencyTracker = latencyTracker;
+            this.outcome = outcome;
+            this.cs = cs;
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled || outcome.isDone()) {
+                    return;
+                }
+                runner = Thread.currentThread();
+            }
+            var revert = cs != null ? cs.apply() : DefaultStateRevert.empty();
+            try {
+                var startNanos = System.nanoTime();
+                this.startNanos = startNanos;
+                try {
+                    var entityUpdater = dataProcessor.process(processorContext);
+                    if (outcome.complete(entityUpdater)) {
+                        var finishNanos = System.nanoTime();
+                        latencyTracker.record(finishNanos - startNanos);
+                        var competitorStartNanos = competitor.startNanos;
+                        if (competitorStartNanos != 0 && competitorStartNanos - startNanos < 0) {
+                            // the competitor started earlier and is still not finished. its real latency is unknown but at least
+                            // this long - without it the tracker would only see the fast invocations and hedge more and more often
+                            latencyTracker.record(finishNanos - competitorStartNanos);
+                        }
+                        competitor.cancel();
+                    }
+                } catch (Throwable e) {
+                    if (outcome.completeExceptionally(e)) {
+                        competitor.cancel();
+                    }
+                }
+            } finally {
+                revert.revert();
+                synchronized (this) {
+                    runner = null;
+                    if (cancelled) {
+                        // the interrupt was meant for the data processor only
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Prevents the start of this invocation or interrupts it if it is currently running
+         */
+        public synchronized void cancel() {
+            cancelled = true;
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    /**
+     * The invocation of a {@link NonBlockingDataProcessor}. It is still a regular callable so it can be executed like any other stage task - e.g. within a bulkhead. Without such constraints the stage
+     * task is {@link StageTask#start() started} instead, which occupies the current thread only until the data processor returned its stage
+     */
+    protected static class NonBlockingInvocation<E, C extends DataProcessorContext> implements Callable<CheckedConsumer<E>> {
+        protected final NonBlockingDataProcessor<E, C> dataProcessor;
+
+        protected final DataProcessorExceptionHandler exceptionHandler;
+
+        protected final C processorContext;
+
+        /**
+         * Applied for the invocation itself as well as for the completion callbacks
+         */
+        protected final ContextSnapshot cs;
+
+        /**
+         * The stage returned by the data processor. Null if it has not been started asynchronously (yet)
+         */
+        protected volatile CompletionStage<CheckedConsumer<E>> stage;
+
+        protected volatile boolean cancelled;
+
+        public NonBlockingInvocation(NonBlockingDataProcessor<E, C> dataProcessor, DataProcessorExceptionHandler exceptionHandler, C processorContext, ContextSnapshot cs) {
+            this.dataProcessor = dataProcessor;
+            this.exceptionHandler = exceptionHandler;
+            this.processorContext = processorContext;
+            this.cs = cs;
+        }
+
+        @Override
+        public CheckedConsumer<E> call() throws Exception {
+            var revert = cs.apply();
+            try {
+                return dataProcessor.process(processorContext);
+            } catch (Throwable e) {
+                if (exceptionHandler == null) {
+                    throw e;
+                }
+                return exceptionHandler.handleProcessException(dataProcessor, processorContext, e);
+            } finally {
+                revert.revert();
+            }
+        }
+
+        /**
+         * Starts the data processor without waiting for its outcome
+         *
+         * @return Completed with the entity updater - or with the fallback entity updater of the exception handler
+         */
+        public CompletableFuture<CheckedConsumer<E>> callAsync() {
+            CompletionStage<CheckedConsumer<E>> stage;
+            var revert = cs.apply();
+            try {
+                stage = dataProcessor.processAsync(processorContext);
+            } catch (Throwable e) {
+                stage = CompletableFuture.failedFuture(e);
+            } finally {
+                revert.revert();
+            }
+            if (stage == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            this.stage = stage;
+            if (cancelled) {
+                // timed out while the data processor was still returning its stage
+                cancel();
+            }
+            var outcome = new CompletableFuture<CheckedConsumer<E>>();
+            stage.whenComplete((entityUpdater, e) -> {
+                if (e == null) {
+                    outcome.complete(entityUpdater);
+                    return;
+                }
+                var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                if (exceptionHandler == null) {
+                    outcome.completeExceptionally(cause);
+                    return;
+                }
+                var callbackRevert = cs.apply();
+                try {
+                    outcome.complete(exceptionHandler.handleProcessException(dataProcessor, processorContext, cause));
+                } catch (Throwable handlerException) {
+                    outcome.completeExceptionally(handlerException);
+                } finally {
+                    callbackRevert.revert();
+                }
+            });
+            return outcome;
+        }
+
+        /**
+         * Cancels the stage returned by the data processor - if it supports cancellation at all - so that it does not continue the work of a timed out invocation
+         */
+        public void cancel() {
+            cancelled = true;
+            var stage = this.stage;
+            if (stage instanceof Future) {
+                ((Future<?>) stage).cancel(true);
+            }
+        }
+    }
+
+    /**
+     * The submitted tasks of a single stage in {@link DataProcessorExecutionMode#STAGED} mode
+     */
+    protected static class StageExecution<E, C extends DataProcessorContext> {
+        protected final List<RunnableSupplier<E, C>> runnableSuppliersList;
+
+        protected final int stageIndex;
+
+        protected final long startNanos = System.nanoTime();
+
+        /**
+         * Each stage task carries the entity its entity updater is applied to
+         */
+        protected final List<StageTask<E, C>> stageTasks;
+
+        public StageExecution(List<RunnableSupplier<E, C>> runnableSuppliersList, int stageIndex) {
+            this.runnableSuppliersList = runnableSuppliersList;
+            this.stageIndex = stageIndex;
+            stageTasks = new ArrayList<>(runnableSuppliersList.size());
+        }
+    }
+
+    /**
+     * Dispatches to several registered {@link DataProcessorExecutionListener}s in the order of their registration
+     */
+    protected static class CompositeDataProcessorExecutionListener implements DataProcessorExecutionListener {
+        protected final DataProcessorExecutionListener[] executionListeners;
+
+        public CompositeDataProcessorExecutionListener(DataProcessorExecutionListener[] executionListeners) {
+            this.executionListeners = executionListeners;
+        }
+
+        @Override
+        public void planCompiled(DataProcessorPlan<?> plan, long compileNanos) {
+            for (var executionListener : executionListeners) {
+                executionListener.planCompiled(plan, compileNanos);
+            }
+        }
+
+        @Override
+        public void executionFinished(Class<?> entityType, int entityCount, long elapsedNanos) {
+            for (var executionListener : executionListeners) {
+                executionListener.executionFinished(entityType, entityCount, elapsedNanos);
+            }
+        }
+
+        @Override
+        public void stageFinished(Class<?> entityType, int stageIndex, int taskCount, long elapsedNanos) {
+            for (var executionListener : executionListeners) {
+                executionListener.stageFinished(entityType, stageIndex, taskCount, elapsedNanos);
+            }
+        }
+
+        @Override
+        public void dataProcessorExecuted(DataProcessor<?, ?> dataProcessor, int entityCount, long queueWaitNanos, long runNanos, boolean successful) {
+            for (var executionListener : executionListeners) {
+                executionListener.dataProcessorExecuted(dataProcessor, entityCount, queueWaitNanos, runNanos, successful);
+            }
+        }
+
+        @Override
+        public void dataProcessorSkipped(DataProcessor<?, ?> dataProcessor, Object entity) {
+            for (var executionListener : executionListeners) {
+                executionListener.dataProcessorSkipped(dataProcessor, entity);
+            }
+        }
+    }
+
+    /**
+     * The state of a single execution in {@link DataProcessorExecutionMode#DEPENDENCY_DRIVEN} mode
+     */
+    protected static class DataProcessorGraphExecution {
+        protected final ForkJoinPool forkJoinPool;
+
+        protected final Queue<Future<?>> submittedTasks = new ConcurrentLinkedQueue<>();
+
+        protected final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        protected final Object entityUpdateLock = new Object();
+
+        public DataProcessorGraphExecution(ForkJoinPool forkJoinPool) {
+            this.forkJoinPool = forkJoinPool;
+        }
+    }
+
+    protected ConfigurationState state = new ConfigurationState();
+
+    /**
+     * The configuration state collecting the registrations of the current {@link #registerAll(Consumer)} batch. Only accessed while holding the write lock
+     */
+    protected ConfigurationState pendingState;
+
+    @Autowired
+    protected ContextSnapshotFactory contextSnapshotFactory;
+
+    @Autowired
+    protected ForkJoinPoolGuard forkJoinPoolGuard;
+
+    @Autowired
+    protected SneakyThrowUtil sneakyThrowUtil;
+
+    @Autowired
+    protected TransferrableThreadLocals transferrableThreadLocals;
+
+    @Autowired(required = false)
+    protected DataProcessorResultCache resultCache;
+
+    protected final ThreadLocal<Long> deadlineTL = new NamedThreadLocal<>("AsyncDataProcessorImpl.deadlineTL");
+
+    /**
+     * The innermost in-flight execution of a coalescing data processor the current thread is working for. Transferred to the forked threads of nested calls
+     */
+    protected final ThreadLocal<InFlightProcess> inFlightProcessTL = new NamedThreadLocal<>("AsyncDataProcessorImpl.inFlightProcessTL");
+
+    protected final Map<InvocationKey, InFlightProcess> inFlightProcessMap = new ConcurrentHashMap<>();
+
+    protected int defaultMaxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    protected int maxCachedPlans = DEFAULT_MAX_CACHED_PLANS;
+
+    protected int resultCacheSize = DEFAULT_RESULT_CACHE_SIZE;
+
+    protected int parallelBuildPartitionSize;
+
+    protected boolean learnCostEstimates = true;
+
+    protected boolean virtualThreads;
+
+    protected int sequentialTaskThreshold = DEFAULT_SEQUENTIAL_TASK_THRESHOLD;
+
+    protected long sequentialCostThresholdNanos = TimeUnit.MICROSECONDS.toNanos(DEFAULT_SEQUENTIAL_COST_THRESHOLD_MICROS);
+
+    /**
+     * The moving average of the observed runtime per data processor in nanoseconds. It serves as cost estimate for data processors without a registered one. An entry is removed as soon as its data
+     * processor is no longer registered for any data scope
+     */
+    protected final Map<DataProcessor<?, ?>, AtomicLong> dataProcessorToObservedNanosMap = new ConcurrentHashMap<>();
+
+    /**
+     * The recently observed latencies of each hedged data processor. An entry is removed as soon as its data processor is no longer hedged or no longer registered
+     */
+    protected final Map<DataProcessor<?, ?>, DataProcessorLatencyTracker> dataProcessorToLatencyTrackerMap = new ConcurrentHashMap<>();
+
+    protected DataProcessorExecutionMode executionMode = DataProcessorExecutionMode.STAGED;
+
+    protected final Lock readLock;
+
+    protected final Lock writeLock;
+
+    public AsyncDataProcessorImpl() {
+        var rwLock = new ReentrantReadWriteLock();
+        readLock = rwLock.readLock();
+        writeLock = rwLock.writeLock();
+    }
+
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.max-batch-size:" + DEFAULT_MAX_BATCH_SIZE + "}")
+    protected void setDefaultMaxBatchSize(int defaultMaxBatchSize) {
+        this.defaultMaxBatchSize = defaultMaxBatchSize;
+    }
+
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.max-cached-plans:" + DEFAULT_MAX_CACHED_PLANS + "}")
+    protected void setMaxCachedPlans(int maxCachedPlans) {
+        this.maxCachedPlans = maxCachedPlans;
+    }
+
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.result-cache-size:" + DEFAULT_RESULT_CACHE_SIZE + "}")
+    protected void setResultCacheSize(int resultCacheSize) {
+        this.resultCacheSize = resultCacheSize;
+    }
+
+    /**
+     * Entity lists larger than the given partition size are split into partitions whose stages are built concurrently on the fork join pool. Zero - the default - disables the parallel build. Only
+     * applies to {@link DataProcessorExecutionMode#STAGED}. Note that in this case the context builder and the data scope supplier are invoked concurrently
+     *
+     * @param parallelBuildPartitionSize
+     */
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.parallel-build-partition-size:0}")
+    public void setParallelBuildPartitionSize(int parallelBuildPartitionSize) {
+        this.parallelBuildPartitionSize = Math.max(parallelBuildPartitionSize, 0);
+    }
+
+    /**
+     * Whether the observed runtimes of data processors are used as cost estimates for data processors without a registered cost estimate - see
+     * {@link DataProcessorExtendable#registerDataProcessorCostEstimate(DataProcessor, Duration)}
+     *
+     * @param learnCostEstimates
+     */
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.learn-cost-estimates:true}")
+    public void setLearnCostEstimates(boolean learnCostEstimates) {
+        this.learnCostEstimates = learnCostEstimates;
+        if (!learnCostEstimates) {
+            dataProcessorToObservedNanosMap.clear();
+        }
+    }
+
+    /**
+     * Stages with at most the given number of tasks are executed on the calling thread instead of being forked. Zero - the default - disables the sequential execution by task count, so each data
+     * processor runs on a worker thread as before
+     *
+     * @param sequentialTaskThreshold
+     */
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.sequential-task-threshold:" + DEFAULT_SEQUENTIAL_TASK_THRESHOLD + "}")
+    public void setSequentialTaskThreshold(int sequentialTaskThreshold) {
+        this.sequentialTaskThreshold = Math.max(sequentialTaskThreshold, 0);
+    }
+
+    /**
+     * Stages whose tasks are all known to take - in sum - at most the given time in microseconds are executed on the calling thread instead of being forked. The estimates are the registered or
+     * learned cost estimates - see {@link DataProcessorExtendable#registerDataProcessorCostEstimate(DataProcessor, Duration)}. Zero - the default - disables the sequential execution by cost
+     *
+     * @param sequentialCostThresholdMicros
+     */
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.sequential-cost-threshold-micros:" + DEFAULT_SEQUENTIAL_COST_THRESHOLD_MICROS + "}")
+    public void setSequentialCostThresholdMicros(long sequentialCostThresholdMicros) {
+        this.sequentialCostThresholdNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(sequentialCostThresholdMicros, 0));
+    }
+
+    /**
+     * Executes each data processor on its own virtual thread instead of on a worker of the fork join pool. This allows to fan out many blocking calls without sizing the fork join pool accordingly.
+     * Virtual threads are only supported from JDK 21 on - on older runtimes the fork join pool is used regardless of this flag
+     *
+     * @param virtualThreads
+     */
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.virtual-threads:false}")
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    @org.springframework.beans.factory.annotation.Value("${threadlys.streams.execution-mode:STAGED}")
+    public void setExecutionMode(DataProcessorExecutionMode executionMode) {
+        this.executionMode = executionMode != null ? executionMode : DataProcessorExecutionMode.STAGED;
+    }
+
+    public DataProcessorExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    @Override
+    public List<TransferrableThreadLocal<?>> getTransferrableThreadLocals() {
+        return List.of(transferrableThreadLocals.wrap(deadlineTL), transferrableThreadLocals.wrap(inFlightProcessTL));
+    }
+
+    @Override
+    public StateRevert pushDeadline(Duration timeout) {
+        Objects.requireNonNull(timeout, "timeout must be valid");
+        var existingDeadline = deadlineTL.get();
+        var deadlineNanos = System.nanoTime() + timeout.toNanos();
+        if (existingDeadline != null && existingDeadline.longValue() - deadlineNanos <= 0) {
+            // the existing deadline is already shorter
+            return DefaultStateRevert.empty();
+        }
+        deadlineTL.set(Long.valueOf(deadlineNanos));
+        return () -> {
+            if (existingDeadline != null) {
+                deadlineTL.set(existingDeadline);
+            } else {
+                deadlineTL.remove();
+            }
+        };
+    }
+
+    /**
+     * Returns the injected result cache. If there is none the default LRU cache is created on first use
+     *
+     * @return
+     */
+    protected DataProcessorResultCache getResultCache() {
+        var resultCache = this.resultCache;
+        if (resultCache != null) {
+            return resultCache;
+        }
+        synchronized (this) {
+            if (this.resultCache == null) {
+                this.resultCache = new LruDataProcessorResultCache(resultCacheSize);
+            }
+            return this.resultCache;
+        }
+    }
+
+    protected long currentDeadlineNanos() {
+        var deadline = deadlineTL.get();
+        return deadline != null ? deadline.longValue() : NO_DEADLINE;
+    }
+
+    @Override
+    public <E, C extends DataProcessorContext> void processAllEntities(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer) {
+        processAllEntitiesIntern(entityType, entityList, dataScopes, contextBuilder, entityToUsedDataScopes, entityProcessedConsumer, null);
+    }
+
+    @Override
+    public <E, C extends DataProcessorContext> DataProcessingResult<E> tryProcessAllEntities(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes,
+            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        var failures = new ConcurrentLinkedQueue<DataProcessorFailure<E>>();
+        processAllEntitiesIntern(entityType, entityList, dataScopes, contextBuilder, entityToUsedDataScopes, null, failures);
+        return buildDataProcessingResult(entityList, failures);
+    }
+
+    /**
+     * @param <E>
+     * @param <C>
+     * @param entityType
+     * @param entityList
+     * @param dataScopes
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @param entityProcessedConsumer
+     * @param failures
+     *            Collects the failures per entity. If null the first failure aborts the whole call
+     */
+    protected <E, C extends DataProcessorContext> void processAllEntitiesIntern(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer, Queue<DataProcessorFailure<E>> failures) {
+        Objects.requireNonNull(entityType, "entityType must be valid");
+        Objects.requireNonNull(contextBuilder, "contextBuilder must be valid");
+
+        if (entityList == null || entityList.isEmpty()) {
+            // nothing to do
+            return;
+        }
+        if (dataScopes == null || dataScopes.isEmpty()) {
+            // nothing to do
+            notifyEntitiesProcessed(entityList, entityProcessedConsumer);
+            return;
+        }
+
+        var executionState = new ExecutionState<>(this.state, entityType, entityList, contextBuilder, createUsedDataScopeTracker(entityToUsedDataScopes),
+                serializeEntityProcessedConsumer(entityProcessedConsumer), currentDeadlineNanos(), failures);
+        var plan = resolveDataProcessorPlan(dataScopes, executionState);
+        applyDataProcessorsToEntities(entity -> plan, executionState);
+    }
+
+    @Override
+    public <E, C extends DataProcessorContext> void processAllEntities(Class<E> entityType, Collection<?> entityList, Function<E, Collection<DataScope>> dataScopeSupplier,
+            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer) {
+        processAllEntitiesIntern(entityType, entityList, dataScopeSupplier, contextBuilder, entityToUsedDataScopes, entityProcessedConsumer, null);
+    }
+
+    @Override
+    public <E, C extends DataProcessorContext> DataProcessingResult<E> tryProcessAllEntities(Class<E> entityType, Collection<?> entityList,
+            Function<E, Collection<DataScope>> dataScopeSupplier, Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        var failures = new ConcurrentLinkedQueue<DataProcessorFailure<E>>();
+        processAllEntitiesIntern(entityType, entityList, dataScopeSupplier, contextBuilder, entityToUsedDataScopes, null, failures);
+        return buildDataProcessingResult(entityList, failures);
+    }
+
+    /**
+     * @param <E>
+     * @param <C>
+     * @param entityType
+     * @param entityList
+     * @param dataScopeSupplier
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @param entityProcessedConsumer
+     * @param failures
+     *            Collects the failures per entity. If null the first failure aborts the whole call
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> void processAllEntitiesIntern(Class<E> entityType, Collection<?> entityList, Function<E, Collection<DataScope>> dataScopeSupplier,
+            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer,
+            Queue<DataProcessorFailure<E>> failures) {
+        Objects.requireNonNull(entityType, "entityType must be valid");
+        Objects.requireNonNull(contextBuilder, "contextBuilder must be valid");
+
+        if (entityList == null || entityList.isEmpty()) {
+            // nothing to do
+            return;
+        }
+        if (dataScopeSupplier == null) {
+            // nothing to do
+            notifyEntitiesProcessed(entityList, entityProcessedConsumer);
+            return;
+        }
+
+        var executionState = new ExecutionState<>(this.state, entityType, entityList, contextBuilder, createUsedDataScopeTracker(entityToUsedDataScopes),
+                serializeEntityProcessedConsumer(entityProcessedConsumer), currentDeadlineNanos(), failures);
+        // holds the pair of the last data scopes and their plan. the pair is replaced as a whole as the plans may be
+        // resolved concurrently in case of a parallel build
+        var lastDataScopesHolder = new AtomicReference<Object[]>();
+        applyDataProcessorsToEntities(entity -> {
+            var dataScopes = dataScopeSupplier.apply(entity);
+            // suppliers often return the very same collection instance for many entities. in that case we even save
+            // the lookup of the cached plan
+            var lastDataScopes = lastDataScopesHolder.get();
+            if (lastDataScopes != null && lastDataScopes[0] == dataScopes && dataScopes != null) {
+                return (DataProcessorPlanImpl<E>) lastDataScopes[1];
+            }
+            var plan = resolveDataProcessorPlan(dataScopes, executionState);
+            lastDataScopesHolder.set(new Object[] { dataScopes, plan });
+            return plan;
+        }, executionState);
+    }
+
+    @Override
+    public <E, C extends DataProcessorContext> LazyDataProcessing<E> processAllEntitiesLazily(Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes,
+            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        Objects.requireNonNull(entityType, "entityType must be valid");
+        Objects.requireNonNull(contextBuilder, "contextBuilder must be valid");
+        return new LazyDataProcessingImpl<>(this, sneakyThrowUtil, entityType, entityList != null ? entityList : List.of(), dataScopes != null ? dataScopes : List.of(), contextBuilder,
+                entityToUsedDataScopes);
+    }
+
+    @Override
+    public <E> DataProcessorPlan<E> buildPlan(Class<E> entityType, Collection<DataScope> dataScopes) {
+        Objects.requireNonNull(entityType, "entityType must be valid");
+        var executionState = new ExecutionState<E, DataProcessorContext>(this.state, entityType, null, null, null, null, NO_DEADLINE, null);
+        return resolveDataProcessorPlan(dataScopes, executionState);
+    }
+
+    @Override
+    public <E, C extends DataProcessorContext> void execute(DataProcessorPlan<E> plan, Collection<?> entityList, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer) {
+        executeIntern(plan, entityList, contextBuilder, entityToUsedDataScopes, entityProcessedConsumer, null);
+    }
+
+    @Override
+    public <E, C extends DataProcessorContext> DataProcessingResult<E> tryExecute(DataProcessorPlan<E> plan, Collection<?> entityList, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        var failures = new ConcurrentLinkedQueue<DataProcessorFailure<E>>();
+        executeIntern(plan, entityList, contextBuilder, entityToUsedDataScopes, null, failures);
+        return buildDataProcessingResult(entityList, failures);
+    }
+
+    /**
+     * @param <E>
+     * @param <C>
+     * @param plan
+     * @param entityList
+     * @param contextBuilder
+     * @param entityToUsedDataScopes
+     * @param entityProcessedConsumer
+     * @param failures
+     *            Collects the failures per entity. If null the first failure aborts the whole call
+     */
+    protected <E, C extends DataProcessorContext> void executeIntern(DataProcessorPlan<E> plan, Collection<?> entityList, Function<E, C> contextBuilder,
+            Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes, Consumer<? super E> entityProcessedConsumer, Queue<DataProcessorFailure<E>> failures) {
+        Objects.requireNonNull(plan, "plan must be valid");
+        Objects.requireNonNull(contextBuilder, "contextBuilder must be valid");
+        if (!(plan instanceof DataProcessorPlanImpl)) {
+            throw new IllegalArgumentException("Plan not supported: " + plan + ". Only plans built by this engine can be executed");
+        }
+        if (entityList == null || entityList.isEmpty()) {
+            // nothing to do
+            return;
+        }
+        var currentState = this.state;
+        var executionState = new ExecutionState<>(currentState, plan.getEntityType(), entityList, contextBuilder, createUsedDataScopeTracker(entityToUsedDataScopes),
+                serializeEntityProcessedConsumer(entityProcessedConsumer), currentDeadlineNanos(), failures);
+        var effectivePlan = (DataProcessorPlanImpl<E>) plan;
+        if (effectivePlan.getConfigurationState() != currentState) {
+            // the configuration changed since the plan has been built
+            effectivePlan = resolveDataProcessorPlan(plan.getDataScopes(), executionState);
+        }
+        if (effectivePlan.getDataProcessorCount() == 0) {
+            // nothing to do
+            notifyEntitiesProcessed(entityList, entityProcessedConsumer);
+            return;
+        }
+        var finalPlan = effectivePlan;
+        applyDataProcessorsToEntities(entity -> finalPlan, executionState);
+    }
+
+    /**
+     * Tracks the used data scopes in the given map of the caller - so that it can be shared across calls. The map is guarded by its own monitor, so it does not need to be thread-safe. Without such
+     * map a lock-free tracker is used that lives only as long as the current call
+     *
+     * @param entityToUsedDataScopes
+     * @return
+     */
+    protected UsedDataScopeTracker createUsedDataScopeTracker(Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        if (entityToUsedDataScopes != null) {
+            return new MapUsedDataScopeTracker(entityToUsedDataScopes);
+        }
+        return new BitsetUsedDataScopeTracker();
+    }
+
+    /**
+     * Builds the outcome per entity from the collected failures
+     *
+     * @param <E>
+     * @param entityList
+     * @param failures
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected <E> DataProcessingResult<E> buildDataProcessingResult(Collection<?> entityList, Queue<DataProcessorFailure<E>> failures) {
+        var failureList = List.copyOf(failures);
+        var entityToFirstFailureMap = new IdentityHashMap<Object, DataProcessorFailure<E>>();
+        for (var failure : failureList) {
+            entityToFirstFailureMap.putIfAbsent(failure.getEntity(), failure);
+        }
+        var entityResults = new ArrayList<Either<DataProcessorFailure<E>, E>>(entityList != null ? entityList.size() : 0);
+        if (entityList != null) {
+            for (var entity : entityList) {
+                if (entity == null) {
+                    continue;
+                }
+                var firstFailure = entityToFirstFailureMap.get(entity);
+                entityResults.add(firstFailure != null ? Either.left(firstFailure) : Either.right((E) entity));
+            }
+        }
+        return new DataProcessingResult<>(entityResults, failureList);
+    }
+
+    /**
+     * Flags the data processor of each of the given items as failed for the entity of the item and reports the failure
+     *
+     * @param <E>
+     * @param <C>
+     * @param items
+     * @param failure
+     * @param executionState
+     */
+    protected <E, C extends DataProcessorContext> void recordFailure(List<RunnableSupplier<E, C>> items, Throwable failure, ExecutionState<E, C> executionState) {
+        var failures = executionState.getFailures();
+        for (var item : items) {
+            item.getFailureTracker()
+                    .flagFailed(item.getDataProcessorIndex());
+            failures.add(new DataProcessorFailure<>(item.getEntity(), item.getDataProcessor(), failure));
+        }
+    }
+
+    /**
+     * @param <E>
+     * @param <C>
+     * @param item
+     * @return true if the data processor of the given item has to be skipped as one of its predecessors failed for the same entity
+     */
+    protected <E, C extends DataProcessorContext> boolean isSkippedDueToFailure(RunnableSupplier<E, C> item) {
+        var failureTracker = item.getFailureTracker();
+        return failureTracker != null && failureTracker.isSkipped(item.getDataProcessorIndex());
+    }
+
+    /**
+     * Ensures that the given consumer is never invoked concurrently - even if entities finish on different workers at the same time
+     *
+     * @param <E>
+     * @param entityProcessedConsumer
+     * @return
+     */
+    protected <E> Consumer<? super E> serializeEntityProcessedConsumer(Consumer<? super E> entityProcessedConsumer) {
+        if (entityProcessedConsumer == null) {
+            return null;
+        }
+        var lock = new Object();
+        return entity -> {
+            synchronized (lock) {
+                entityProcessedConsumer.accept(entity);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <E> void notifyEntitiesProcessed(Collection<?> entityList, Consumer<? super E> entityProcessedConsumer) {
+        if (entityProcessedConsumer == null) {
+            return;
+        }
+        for (var entity : entityList) {
+            if (entity != null) {
+                entityProcessedConsumer.accept((E) entity);
+            }
+        }
+    }
+
+    /**
+     * Flags one data processor of the entity of the given item as finished. If it was the last pending data processor of the entity the entity is passed to the
+     * {@link ExecutionState#getEntityProcessedConsumer()}
+     *
+     * @param <E>
+     * @param <C>
+     * @param runnableSupplier
+     * @param executionState
+     */
+    protected <E, C extends DataProcessorContext> void notifyDataProcessorFinished(RunnableSupplier<E, C> runnableSupplier, ExecutionState<E, C> executionState) {
+        var pendingDataProcessorCountOfEntity = runnableSupplier.getPendingDataProcessorCountOfEntity();
+        if (pendingDataProcessorCountOfEntity != null && pendingDataProcessorCountOfEntity.decrementAndGet() == 0) {
+            executionState.getEntityProcessedConsumer()
+                    .accept(runnableSupplier.getEntity());
+        }
+    }
+
+    protected <E, C extends DataProcessorContext> void applyDataProcessorsToEntities(Function<E, DataProcessorPlanImpl<E>> planProvider, ExecutionState<E, C> executionState) {
+        var executionListener = executionState.getConfigurationState()
+                .getExecutionListener();
+        if (executionListener == null) {
+            applyDataProcessorsToEntitiesIntern(planProvider, executionState);
+            return;
+        }
+        var startNanos = System.nanoTime();
+        try {
+            applyDataProcessorsToEntitiesIntern(planProvider, executionState);
+        } finally {
+            executionListener.executionFinished(executionState.getEntityType(), executionState.getEntityList()
+                    .size(), System.nanoTime() - startNanos);
+        }
+    }
+
+    protected <E, C extends DataProcessorContext> void applyDataProcessorsToEntitiesIntern(Function<E, DataProcessorPlanImpl<E>> planProvider, ExecutionState<E, C> executionState) {
+        var cs = contextSnapshotFactory.createSnapshot();
+        if (executionMode == DataProcessorExecutionMode.DEPENDENCY_DRIVEN) {
+            var rootNodes = buildDataProcessorGraph(planProvider, executionState, cs);
+            executeDataProcessorGraph(rootNodes, executionState, cs);
+            return;
+        }
+        if (parallelBuildPartitionSize > 0 && executionState.getEntityList()
+                .size() > parallelBuildPartitionSize) {
+            buildAndExecuteDataProcessorStagesInParallel(planProvider, executionState, cs);
+            return;
+        }
+        var stageToRunnableSuppliersList = buildDataProcessorStages(planProvider, executionState.getEntityList(), executionState, cs);
+        executeDataProcessorStages(stageToRunnableSuppliersList, 0, executionState, cs);
+    }
+
+    /**
+     * Builds the stages of each partition of the entity list concurrently. As soon as a partition is built its first stage is started - so the first stage of early partitions already executes while
+     * later partitions are still being built. All further stages are merged over all partitions and executed as usual.<br>
+     * <br>
+     * Chunks of a {@link BatchDataProcessor} in the first stage do not span several partitions.
+     *
+     * @param <E>
+     * @param <C>
+     * @param planProvider
+     * @param executionState
+     * @param cs
+     */
+    protected <E, C extends DataProcessorContext> void buildAndExecuteDataProcessorStagesInParallel(Function<E, DataProcessorPlanImpl<E>> planProvider, ExecutionState<E, C> executionState,
+            ContextSnapshot cs) {
+        var revert = pushDefaultForkJoinPoolIfRequired();
+        try {
+            var fjp = forkJoinPoolGuard.currentForkJoinPool();
+            var partitions = partitionEntityList(executionState.getEntityList(), parallelBuildPartitionSize);
+            var buildTasks = new ArrayList<ForkJoinTask<List<List<RunnableSupplier<E, C>>>>>(partitions.size());
+            for (var partition : partitions) {
+                buildTasks.add(fjp.submit(() -> {
+                    var csRevert = cs.apply();
+                    try {
+                        return buildDataProcessorStages(planProvider, partition, executionState, cs);
+                    } finally {
+                        csRevert.revert();
+                    }
+                }));
+            }
+            var firstStageExecutions = new ArrayList<StageExecution<E, C>>(partitions.size());
+            var stageToRunnableSuppliersList = new ArrayList<List<RunnableSupplier<E, C>>>();
+            try {
+                for (var buildTask : buildTasks) {
+                    var stagesOfPartition = buildTask.join();
+                    if (stagesOfPartition.isEmpty()) {
+                        continue;
+                    }
+                    firstStageExecutions.add(startStage(stagesOfPartition.get(0), 0, executionState, cs, fjp));
+                    for (int stageLevel = 1, size = stagesOfPartition.size(); stageLevel < size; stageLevel++) {
+                        if (stageToRunnableSuppliersList.size() < stageLevel) {
+                            stageToRunnableSuppliersList.add(new ArrayList<>());
+                        }
+                        stageToRunnableSuppliersList.get(stageLevel - 1)
+                                .addAll(stagesOfPartition.get(stageLevel));
+                    }
+                }
+            } catch (Throwable e) {
+                // do not leave already started work behind
+                for (var firstStageExecution : firstStageExecutions) {
+                    joinAll(firstStageExecution.stageTasks);
+                }
+                throw e;
+            }
+            // the first stages of all partitions form a single logical stage 0 - from the start of the first partition to the finish of the last one
+            var firstStageTaskCount = 0;
+            for (var firstStageExecution : firstStageExecutions) {
+                finishStageTasks(firstStageExecution, executionState);
+                firstStageTaskCount += firstStageExecution.stageTasks.size();
+            }
+            if (!firstStageExecutions.isEmpty()) {
+                notifyStageExecutionFinished(0, firstStageTaskCount, firstStageExecutions.get(0).startNanos, executionState);
+            }
+            executeDataProcessorStages(stageToRunnableSuppliersList, 1, executionState, cs);
+        } finally {
+            revert.revert();
+        }
+    }
+
+    protected List<Collection<?>> partitionEntityList(Collection<?> entityList, int partitionSize) {
+        var list = entityList instanceof List && entityList instanceof RandomAccess ? (List<?>) entityList : new ArrayList<>(entityList);
+        var partitions = new ArrayList<Collection<?>>((list.size() + partitionSize - 1) / partitionSize);
+        for (int fromIndex = 0, size = list.size(); fromIndex < size; fromIndex += partitionSize) {
+            partitions.add(list.subList(fromIndex, Math.min(fromIndex + partitionSize, size)));
+        }
+        return partitions;
+    }
+
+    /**
+     * Ensures that a fork join pool is bound to the current thread. If there is none the default fork join pool is pushed.
+     *
+     * @return The revert handle to unbind a pushed fork join pool again
+     */
+    protected StateRevert pushDefaultForkJoinPoolIfRequired() {
+        if (forkJoinPoolGuard.currentForkJoinPool() != null) {
+            return DefaultStateRevert.empty();
+        }
+        return forkJoinPoolGuard.pushForkJoinPool(forkJoinPoolGuard.getDefaultForkJoinPool());
+    }
+
+    protected <E, C extends DataProcessorContext> void executeDataProcessorStages(List<List<RunnableSupplier<E, C>>> stageToRunnableSuppliersList, int firstStageIndex,
+            ExecutionState<E, C> executionState, ContextSnapshot cs) {
+        var revert = pushDefaultForkJoinPoolIfRequired();
+        try {
+            var fjp = forkJoinPoolGuard.currentForkJoinPool();
+            for (int stageIndex = 0, size = stageToRunnableSuppliersList.size(); stageIndex < size; stageIndex++) {
+                finishStage(startStage(stageToRunnableSuppliersList.get(stageIndex), firstStageIndex + stageIndex, executionState, cs, fjp), executionState);
+            }
+        } finally {
+            revert.revert();
+        }
+    }
+
+    /**
+     * Submits all tasks of the given stage to the given pool
+     *
+     * @param <E>
+     * @param <C>
+     * @param runnableSuppliersList
+     * @param executionState
+     * @param cs
+     * @param fjp
+     * @return The handle to finish the stage via {@link #finishStage(StageExecution, ExecutionState)}
+     */
+    protected <E, C extends DataProcessorContext> StageExecution<E, C> startStage(List<RunnableSupplier<E, C>> runnableSuppliersList, int stageIndex, ExecutionState<E, C> executionState,
+            ContextSnapshot cs, ForkJoinPool fjp) {
+        var stageExecution = new StageExecution<E, C>(runnableSuppliersList, stageIndex);
+
+        buildStageTasks(runnableSuppliersList, stageExecution.stageTasks, executionState, cs);
+
+        var stageTasks = stageExecution.stageTasks;
+        if (executionState.getConfigurationState()
+                .getExecutionListener() != null) {
+            var submittedNanos = System.nanoTime();
+            for (var stageTask : stageTasks) {
+                stageTask.submittedNanos = submittedNanos;
+            }
+        }
+        var totalCostEstimateNanos = resolveCostEstimates(stageTasks);
+        if (isSequentialExecutionPreferred(stageTasks, totalCostEstimateNanos)) {
+            // forking would cost more than the work itself. the stage task still applies the context snapshot and honors the exception handler
+            for (var stageTask : stageTasks) {
+                if (stageTask.isNonBlocking()) {
+                    stageTask.future = stageTask.start();
+                } else {
+                    stageTask.run();
+                }
+            }
+            return stageExecution;
+        }
+        for (var stageTask : sortByCostEstimate(stageTasks)) {
+            stageTask.scheduleTimeout();
+            if (stageTask.isNonBlocking()) {
+                // only occupies the calling thread until the data processor returned its stage
+                stageTask.future = stageTask.start();
+                continue;
+            }
+            stageTask.future = submitTask(stageTask, stageTask.items.get(0)
+                    .getBulkhead(), fjp);
+        }
+        return stageExecution;
+    }
+
+    /**
+     * Decides whether the given stage tasks are executed on the calling thread. This is the case for stages with only a few tasks or with a total cost estimate below the configured threshold - unless
+     * any of the tasks has a deadline or a bulkhead, which can only be enforced for a forked task
+     *
+     * @param stageTasks
+     * @param totalCostEstimateNanos
+     *            The sum of the cost estimates of all stage tasks. Negative if the cost estimate of any stage task is unknown
+     * @return
+     */
+    protected boolean isSequentialExecutionPreferred(List<? extends StageTask<?, ?>> stageTasks, long totalCostEstimateNanos) {
+        if (stageTasks.isEmpty()) {
+            return false;
+        }
+        for (int a = 0, size = stageTasks.size(); a < size; a++) {
+            var stageTask = stageTasks.get(a);
+            if (stageTask.deadlineNanos != NO_DEADLINE || stageTask.items.get(0)
+                    .getBulkhead() != null) {
+                return false;
+            }
+        }
+        if (stageTasks.size() <= sequentialTaskThreshold) {
+            return true;
+        }
+        return sequentialCostThresholdNanos > 0 && totalCostEstimateNanos >= 0 && totalCostEstimateNanos <= sequentialCostThresholdNanos;
+    }
+
+    /**
+     * Resolves the cost estimate of each of the given stage tasks
+     *
+     * @param stageTasks
+     * @return The sum of all cost estimates in nanoseconds. -1 if the cost estimate of any stage task is unknown
+     */
+    protected long resolveCostEstimates(List<? extends StageTask<?, ?>> stageTasks) {
+        var totalCostEstimateNanos = 0L;
+        for (int a = 0, size = stageTasks.size(); a < size; a++) {
+            var stageTask = stageTasks.get(a);
+            stageTask.costEstimateNanos = resolveCostEstimateNanos(stageTask);
+            if (stageTask.costEstimateNanos <= 0) {
+                totalCostEstimateNanos = -1;
+            } else if (totalCostEstimateNanos >= 0) {
+                totalCostEstimateNanos += stageTask.costEstimateNanos;
+            }
+        }
+        return totalCostEstimateNanos;
+    }
+
+    /**
+     * Orders the given stage tasks with resolved cost estimates for submission: longest processing time first. The most expensive stage tasks are started as early as possible so that they do not extend the duration of the stage
+     * after all cheap stage tasks already finished. The given list itself is not modified so that the entity updaters are still applied in the order of the stage
+     *
+     * @param <E>
+     * @param <C>
+     * @param stageTasks
+     * @return
+     */
+    protected <E, C extends DataProcessorContext> List<StageTask<E, C>> sortByCostEstimate(List<StageTask<E, C>> stageTasks) {
+        var sortRequired = false;
+        for (int a = 1, size = stageTasks.size(); a < size; a++) {
+            sortRequired |= stageTasks.get(a).costEstimateNanos > stageTasks.get(a - 1).costEstimateNanos;
+        }
+        if (!sortRequired) {
+            return stageTasks;
+        }
+        var sortedStageTasks = new ArrayList<>(stageTasks);
+        // stable sort: stage tasks with equal estimates keep their order
+        sortedStageTasks.sort((left, right) -> Long.compare(right.costEstimateNanos, left.costEstimateNanos));
+        return sortedStageTasks;
+    }
+
+    /**
+     * Resolves the expected runtime of the given stage task: the registered cost estimate of its data processor or - if there is none - the observed moving average
+     *
+     * @param stageTask
+     * @return The cost estimate in nanoseconds. Zero if unknown
+     */
+    protected long resolveCostEstimateNanos(StageTask<?, ?> stageTask) {
+        var item = stageTask.items.get(0);
+        if (item.getCostEstimateNanos() > 0) {
+            return item.getCostEstimateNanos();
+        }
+        if (!learnCostEstimates) {
+            return 0;
+        }
+        var observedNanos = dataProcessorToObservedNanosMap.get(item.getDataProcessor());
+        return observedNanos != null ? observedNanos.get() : 0;
+    }
+
+    /**
+     * Feeds the observed runtime of the given finished stage task into the moving average of its data processor
+     *
+     * @param stageTask
+     */
+    protected void recordObservedCost(StageTask<?, ?> stageTask) {
+        if (!learnCostEstimates || stageTask.elapsedNanos == 0) {
+            return;
+        }
+        var dataProcessor = stageTask.items.get(0)
+                .getDataProcessor();
+        var observedNanos = dataProcessorToObservedNanosMap.get(dataProcessor);
+        if (observedNanos == null) {
+            observedNanos = dataProcessorToObservedNanosMap.computeIfAbsent(dataProcessor, key -> new AtomicLong(stageTask.elapsedNanos));
+        }
+        // exponential moving average with a weight of 1/8 for the new sample. concurrent updates may get lost which is fine for an estimate
+        var oldNanos = observedNanos.get();
+        observedNanos.lazySet(oldNanos + ((stageTask.elapsedNanos - oldNanos) >> 3));
+    }
+
+    /**
+     * Waits for all tasks of the given stage and applies their entity updaters
+     *
+     * @param <E>
+     * @param <C>
+     * @param stageExecution
+     * @param executionState
+     */
+    protected <E, C extends DataProcessorContext> void finishStage(StageExecution<E, C> stageExecution, ExecutionState<E, C> executionState) {
+        finishStageTasks(stageExecution, executionState);
+        notifyStageExecutionFinished(stageExecution.stageIndex, stageExecution.stageTasks.size(), stageExecution.startNanos, executionState);
+    }
+
+    /**
+     * Same as {@link #finishStage(StageExecution, ExecutionState)} but without reporting the stage to the execution listeners - for a stage that is only a part of a logical stage
+     *
+     * @param <E>
+     * @param <C>
+     * @param stageExecution
+     * @param executionState
+     */
+    protected <E, C extends DataProcessorContext> void finishStageTasks(StageExecution<E, C> stageExecution, ExecutionState<E, C> executionState) {
+        joinAll(stageExecution.stageTasks);
+        // now we know all stage tasks have either been finished or timed out
+        for (var stageTask : stageExecution.stageTasks) {
+            recordObservedCost(stageTask);
+            notifyDataProcessorExecuted(stageTask, executionState);
+        }
+        updateEntities(stageExecution.stageTasks, executionState);
+        notifyStageFinished(stageExecution.runnableSuppliersList, executionState);
+    }
+
+    /**
+     * Reports a finished logical stage to the registered execution listeners
+     *
+     * @param <E>
+     * @param <C>
+     * @param stageIndex
+     * @param taskCount
+     * @param startNanos
+     *            When the first part of the stage has been started in terms of {@link System#nanoTime()}
+     * @param executionState
+     */
+    protected <E, C extends DataProcessorContext> void notifyStageExecutionFinished(int stageIndex, int taskCount, long startNanos, ExecutionState<E, C> executionState) {
+        var executionListener = executionState.getConfigurationState()
+                .getExecutionListener();
+        if (executionListener != null) {
+            executionListener.stageFinished(executionState.getEntityType(), stageIndex, taskCount, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Reports the timings of the given finished or timed out stage task to the registered execution listeners
+     *
+     * @param <E>
+     * @param <C>
+     * @param stageTask
+     * @param executionState
+     */
+    protected <E, C extends DataProcessorContext> void notifyDataProcessorExecuted(StageTask<E, C> stageTask, ExecutionState<E, C> executionState) {
+        var executionListener = executionState.getConfigurationState()
+                .getExecutionListener();
+        if (executionListener == null) {
+            return;
+        }
+        var startedNanos = stageTask.startedNanos;
+        long queueWaitNanos;
+        long runNanos;
+        if (startedNanos == 0) {
+            // timed out before it even started
+            queueWaitNanos = System.nanoTime() - stageTask.submittedNanos;
+            runNanos = 0;
+        } else {
+            queueWaitNanos = Math.max(startedNanos - stageTask.submittedNanos, 0);
+            runNanos = stageTask.elapsedNanos > 0 ? stageTask.elapsedNanos : System.nanoTime() - startedNanos;
+        }
+        executionListener.dataProcessorExecuted(stageTask.items.get(0)
+                .getDataProcessor(), stageTask.items.size(), queueWaitNanos, runNanos, !stageTask.timedOut && stageTask.failure == null);
+    }
+
+    /**
+     * Reports that the given data processor has not been invoked for the given entity
+     *
+     * @param <E>
+     * @param <C>
+     * @param dataProcessor
+     * @param entity
+     * @param executionState
+     */
+    protected <E, C extends DataProcessorContext> void notifyDataProcessorSkipped(DataProcessor<E, C> dataProcessor, E entity, ExecutionState<E, C> executionState) {
+        var executionListener = executionState.getConfigurationState()
+                .getExecutionListener();
+        if (executionListener != null) {
+            executionListener.dataProcessorSkipped(dataProcessor, entity);
+        }
+    }
+
+    protected <E, C extends DataProcessorContext> void notifyStageFinished(List<RunnableSupplier<E, C>> runnableSuppliersList, ExecutionState<E, C> executionState) {
+        if (executionState.getEntityProcessedConsumer() == null) {
+            return;
+        }
+        for (var runnableSupplier : runnableSuppliersList) {
+            notifyDataProcessorFinished(runnableSupplier, executionState);
+        }
+    }
+
+    /**
+     * Waits for the completion of exactly the given tasks. In contrast to polling the pool for quiescence this neither spins nor executes unrelated tasks of other requests sharing the same pool.<br>
+     * <br>
+     * If the current thread is a worker of the pool the most recently submitted tasks are still on top of its own queue - so joining in reverse order executes them inline. Any task already stolen by
+     * another worker is helped or compensated by the pool itself, which is important as the current thread might be the last unblocked worker of the pool.
+     *
+     * @param stageTasks
+     */
+    protected void joinAll(List<? extends StageTask<?, ?>> stageTasks) {
+        for (int a = stageTasks.size(); a-- > 0;) {
+            awaitStageTask(stageTasks.get(a));
+        }
+    }
+
+    /**
+     * Submits the given task either to the given fork join pool or - in virtual thread mode - to a new virtual thread. If a bulkhead is given the submission is deferred until the bulkhead admits the
+     * task
+     *
+     * @param task
+     * @param bulkhead
+     *            May be null
+     * @param fjp
+     * @return
+     */
+    protected Future<?> submitTask(Runnable task, DataProcessorBulkhead bulkhead, ForkJoinPool fjp) {
+        var virtualThreadExecutor = resolveVirtualThreadExecutor();
+        if (bulkhead != null) {
+            var future = new CompletableFuture<Void>();
+            bulkhead.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    future.complete(null);
+                }
+            }, virtualThreadExecutor != null ? virtualThreadExecutor : fjp);
+            return future;
+        }
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor.submit(task);
+        }
+        return fjp.submit(task);
+    }
+
+    /**
+     * Waits for the completion of the given future without throwing its failure. Like {@link ForkJoinTask#quietlyJoin()} it is not interruptible
+     *
+     * @param future
+     */
+    protected void joinQuietly(Future<?> future) {
+        if (future instanceof ForkJoinTask) {
+            ((ForkJoinTask<?>) future).quietlyJoin();
+            return;
+        }
+        var interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    return;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread()
+                        .interrupt();
+            }
+        }
+    }
+
+    protected ExecutorService resolveVirtualThreadExecutor() {
+        if (!virtualThreads) {
+            return null;
+        }
+        return forkJoinPoolGuard.getVirtualThreadExecutor()
+                .orElse(null);
+    }
+
+    /**
+     * Waits for the given submitted stage task. If the task has a deadline it is timed out at the latest at its deadline by its scheduled timeout. Waiting for the completion of the stage task instead
+     * of its future never executes the task inline so the deadline holds even if the current thread is a worker of the pool.
+     *
+     * @param stageTask
+     */
+    protected void awaitStageTask(StageTask<?, ?> stageTask) {
+        if (stageTask.future == null) {
+            // already executed on the calling thread
+            return;
+        }
+        if (stageTask.deadlineNanos == NO_DEADLINE) {
+            joinQuietly(stageTask.future);
+            return;
+        }
+        stageTask.completion.join();
+    }
+
+    /**
+     * Resolves the entity updaters of the given finished stage task - one per item of the task. For a timed out task the exception handler of its data processor provides the fallback entity updater
+     * of each item
+     *
+     * @param <E>
+     * @param <C>
+     * @param stageTask
+     * @return The entity updater of each item at the same index as the item. Null if there is nothing to apply
+     * @throws Throwable
+     *             The failure of the stage task or a {@link DataProcessorTimeoutException} if there is no exception handler for a timed out stage task
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> List<CheckedConsumer<E>> resolveEntityUpdaters(StageTask<E, C> stageTask) throws Throwable {
+        if (!stageTask.timedOut) {
+            if (stageTask.failure != null) {
+                throw stageTask.failure;
+            }
+            return stageTask.entityUpdaters;
+        }
+        var items = stageTask.items;
+        var dataProcessor = items.get(0)
+                .getDataProcessor();
+        var exceptionHandler = items.get(0)
+                .getExceptionHandler();
+        var timeoutException = new DataProcessorTimeoutException(dataProcessor);
+        if (exceptionHandler == null) {
+            throw timeoutException;
+        }
+        var entityUpdaters = new ArrayList<CheckedConsumer<E>>(items.size());
+        for (var item : items) {
+            entityUpdaters.add(exceptionHandler.handleProcessException(dataProcessor, item.getDataProcessorContext(), timeoutException));
+        }
+        return entityUpdaters;
+    }
+
+    /**
+     * Calculates the deadline of a data processor scheduled right now. It is the earlier one of its own timeout and the deadline of the whole execution
+     *
+     * @param timeoutNanos
+     * @param executionState
+     * @return
+     */
+    protected long resolveDeadlineNanos(long timeoutNanos, ExecutionState<?, ?> executionState) {
+        var deadlineNanos = executionState.getDeadlineNanos();
+        if (timeoutNanos <= 0) {
+            return deadlineNanos;
+        }
+        var ownDeadlineNanos = System.nanoTime() + timeoutNanos;
+        if (deadlineNanos == NO_DEADLINE || ownDeadlineNanos - deadlineNanos < 0) {
+            return ownDeadlineNanos;
+        }
+        return deadlineNanos;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> void buildStageTasks(List<RunnableSupplier<E, C>> runnableSuppliersList, List<StageTask<E, C>> stageTasks, ExecutionState<E, C> executionState,
+            ContextSnapshot cs) {
+        Map<BatchDataProcessor<E, C>, List<RunnableSupplier<E, C>>> batchDataProcessorToRunnableSuppliersMap = null;
+        for (int a = 0, size = runnableSuppliersList.size(); a < size; a++) {
+            var runnableSupplier = runnableSuppliersList.get(a);
+            if (isSkippedDueToFailure(runnableSupplier) || !isExecutionExpected(runnableSupplier, executionState)) {
+                continue;
+            }
+            if (runnableSupplier.getDataProcessor() instanceof BatchDataProcessor) {
+                // batch data processors are collected over the whole stage and chunked afterwards
+                if (batchDataProcessorToRunnableSuppliersMap == null) {
+                    batchDataProcessorToRunnableSuppliersMap = new LinkedHashMap<>();
+                }
+                batchDataProcessorToRunnableSuppliersMap.computeIfAbsent((BatchDataProcessor<E, C>) runnableSupplier.getDataProcessor(), key -> new ArrayList<>())
+                        .add(runnableSupplier);
+                continue;
+            }
+            var callable = resolveCallable(runnableSupplier, executionState);
+            if (callable == null) {
+                continue;
+            }
+            stageTasks.add(new StageTask<>(callable, runnableSupplier, resolveDeadlineNanos(runnableSupplier.getTimeoutNanos(), executionState), cs));
+        }
+        if (batchDataProcessorToRunnableSuppliersMap == null) {
+            return;
+        }
+        batchDataProcessorToRunnableSuppliersMap.forEach((batchDataProcessor, batchRunnableSuppliers) -> {
+            var pendingRunnableSuppliers = batchRunnableSuppliers.stream()//
+                    .filter(runnableSupplier -> isBatchItemPending(batchDataProcessor, runnableSupplier, executionState))//
+                    .collect(Collectors.toList());
+            if (pendingRunnableSuppliers.isEmpty()) {
+                return;
+            }
+            var maxBatchSize = resolveMaxBatchSize(batchDataProcessor);
+            var chunkCount = (pendingRunnableSuppliers.size() + maxBatchSize - 1) / maxBatchSize;
+
+            // distribute the entities evenly over all chunks so that the chunks running concurrently
+            // on the workers have a comparable runtime
+            for (int chunkIndex = 0; chunkIndex < chunkCount; chunkIndex++) {
+                var fromIndex = (int) ((long) pendingRunnableSuppliers.size() * chunkIndex / chunkCount);
+                var toIndex = (int) ((long) pendingRunnableSuppliers.size() * (chunkIndex + 1) / chunkCount);
+                var chunk = pendingRunnableSuppliers.subList(fromIndex, toIndex);
+
+                // the timeout belongs to the batch data processor and is therefore the same for all entities of the chunk
+                stageTasks.add(new StageTask<>(asyncProcessBatch(batchDataProcessor, chunk, executionState, cs), chunk, resolveDeadlineNanos(chunk.get(0)
+                        .getTimeoutNanos(), executionState), cs));
+            }
+        });
+    }
+
+    protected <E, C extends DataProcessorContext> void executeDataProcessorGraph(List<DataProcessorNode<E, C>> rootNodes, ExecutionState<E, C> executionState, ContextSnapshot cs) {
+        if (rootNodes.isEmpty()) {
+            return;
+        }
+        var revert = pushDefaultForkJoinPoolIfRequired();
+        try {
+            var graphExecution = new DataProcessorGraphExecution(forkJoinPoolGuard.currentForkJoinPool());
+            for (var rootNode : rootNodes) {
+                submitDataProcessorNode(rootNode, graphExecution, executionState, cs);
+            }
+            // each node submits its successors before its own task completes. so once we joined every
+            // task of the queue - including the ones appended while we were waiting - the whole graph is done.
+            // joining our own tasks lets the current thread help with exactly this work in case it is a worker
+            // of the same pool, instead of blocking the last free worker
+            Future<?> task;
+            while ((task = graphExecution.submittedTasks.poll()) != null) {
+                joinQuietly(task);
+            }
+            var failure = graphExecution.failure.get();
+            if (failure != null) {
+                var ex = sneakyThrowUtil.mergeStackTraceWithCause(failure);
+                throw sneakyThrowUtil.sneakyThrow(ex);
+            }
+        } finally {
+            revert.revert();
+        }
+    }
+
+    protected <E, C extends DataProcessorContext> void submitDataProcessorNode(DataProcessorNode<E, C> node, DataProcessorGraphExecution graphExecution, ExecutionState<E, C> executionState,
+            ContextSnapshot cs) {
+        node.submittedNanos = System.nanoTime();
+        // the node holds the permit of the bulkhead for the whole execution of its data processor
+        var task = submitTask(() -> executeDataProcessorNode(node, graphExecution, executionState, cs), node.items.get(0)
+                .getBulkhead(), graphExecution.forkJoinPool);
+        graphExecution.submittedTasks.add(task);
+    }
+
+    protected <E, C extends DataProcessorContext> void executeDataProcessorNode(DataProcessorNode<E, C> node, DataProcessorGraphExecution graphExecution, ExecutionState<E, C> executionState,
+            ContextSnapshot cs) {
+        if (graphExecution.failure.get() != null) {
+            // another data processor already failed so there is no need to start any further work
+            return;
+        }
+        var revert = cs.apply();
+        StageTask<E, C> stageTask = null;
+        Throwable failure = null;
+        try {
+            stageTask = resolveDataProcessorNodeTask(node, executionState, cs);
+            if (stageTask != null) {
+                stageTask.submittedNanos = node.submittedNanos;
+                if (stageTask.deadlineNanos != NO_DEADLINE || stageTask.isNonBlocking()) {
+                    // the node is continued as soon as the stage task finished or timed out, so no worker waits for the
+                    // deadline. the continuation is registered before this task completes, so the caller still waits for it
+                    var continuation = new CompletableFuture<Void>();
+                    graphExecution.submittedTasks.add(continuation);
+                    var startedStageTask = stageTask;
+                    BiConsumer<Void, Throwable> finishAction = (result, e) -> {
+                        try {
+                            finishDataProcessorNode(node, startedStageTask, null, graphExecution, executionState, cs);
+                        } finally {
+                            continuation.complete(null);
+                        }
+                    };
+                    if (stageTask.deadlineNanos != NO_DEADLINE) {
+                        // a timeout completes the stage task on the scheduler thread which must not run the exception handler
+                        var virtualThreadExecutor = resolveVirtualThreadExecutor();
+                        stageTask.completion.whenCompleteAsync(finishAction, virtualThreadExecutor != null ? virtualThreadExecutor : graphExecution.forkJoinPool);
+                        stageTask.scheduleTimeout();
+                    } else {
+                        stageTask.completion.whenComplete(finishAction);
                     }
-                    var downstreamStage = dataProcessorChain.get(downstreamStageIndex);
-                    addToStageOrAppendStageAfterIndex(dataProcessor, dataScopesOfDataProcessor, dataProcessorChain, downstreamStageIndex, dataProcessorToRequiredDataScopesMap);
-                    downstreamStage.put(dataProcessor, dataScopesOfDataProcessor);
-                    return true;
-                })//
-                .findFirst()//
-                .isPresent();
+                    if (stageTask.isNonBlocking()) {
+                        // the current worker is released as soon as the data processor returned its stage
+                        stageTask.start();
+                    } else {
+                        // the current worker runs the data processor itself and is interrupted at the deadline
+                        stageTask.run();
+                    }
+                    return;
+                }
+                stageTask.run();
+            }
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            revert.revert();
+        }
+        finishDataProcessorNode(node, stageTask, failure, graphExecution, executionState, cs);
     }
 
-    @SuppressWarnings("rawtypes")
-    protected <E, C extends DataProcessorContext> boolean tryToAppendToUpstreamStage(Map<DataProcessor, Set<DataScope>> dataProcessorToRequiredDataScopesMap,
-            ArrayList<Map<DataProcessor<E, C>, Collection<DataScope>>> dataProcessorChain, DataProcessor<E, C> dataProcessor, Collection<DataScope> dataScopesOfDataProcessor, int stageIndex,
-            Set<DataScope> dataScopesCascadeOfChainedDataProcessor) {
-        return dataScopesCascadeOfChainedDataProcessor.stream()//
-                .filter(dataScopesOfDataProcessor::contains)//
-                .map(chainedDataScope -> {
-                    var upstreamStageIndex = stageIndex - 1;
-                    if (upstreamStageIndex == -1) {
-                        // we are currently in the first stage, but a data processor from this stage
-                        // requires the current one
-                        // so we need to insert a new first stage
-                        dataProcessorChain.add(0, new LinkedHashMap<DataProcessor<E, C>, Collection<DataScope>>());
-                        upstreamStageIndex = 0;
+    /**
+     * Applies the outcome of the given finished stage task of the node and submits all successors of the node which do not wait for any other predecessor
+     *
+     * @param <E>
+     * @param <C>
+     * @param node
+     * @param stageTask
+     *            Null if there was nothing to do for the node
+     * @param failure
+     *            The failure while executing the node. May be null
+     * @param graphExecution
+     * @param executionState
+     * @param cs
+     */
+    protected <E, C extends DataProcessorContext> void finishDataProcessorNode(DataProcessorNode<E, C> node, StageTask<E, C> stageTask, Throwable failure,
+            DataProcessorGraphExecution graphExecution, ExecutionState<E, C> executionState, ContextSnapshot cs) {
+        var revert = cs.apply();
+        try {
+            if (stageTask != null) {
+                notifyDataProcessorExecuted(stageTask, executionState);
+            }
+            if (failure == null) {
+                try {
+                    if (stageTask != null) {
+                        var entityUpdaters = resolveEntityUpdaters(stageTask);
+                        if (entityUpdaters != null) {
+                            // the updaters are applied on the workers now, but we still want them to be applied one at a time
+                            // just like in the staged mode
+                            synchronized (graphExecution.entityUpdateLock) {
+                                stageTask.updateEntities(entityUpdaters);
+                            }
+                        }
                     }
-                    addToStageOrAppendStageAfterIndex(dataProcessor, dataScopesOfDataProcessor, dataProcessorChain, upstreamStageIndex, dataProcessorToRequiredDataScopesMap);
-                    return true;
-                })//
-                .findFirst()//
-                .isPresent();
+                    if (executionState.getEntityProcessedConsumer() != null) {
+                        for (var item : node.items) {
+                            notifyDataProcessorFinished(item, executionState);
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                if (executionState.getFailures() == null) {
+                    graphExecution.failure.compareAndSet(null, failure);
+                    return;
+                }
+                // the successors of the failed entities are skipped on their own
+                recordFailure(stageTask != null ? stageTask.items : node.items, failure, executionState);
+            }
+        } finally {
+            revert.revert();
+        }
+        for (var successor : node.successors) {
+            if (successor.pendingPredecessorCount.decrementAndGet() == 0) {
+                submitDataProcessorNode(successor, graphExecution, executionState, cs);
+            }
+        }
     }
 
-    @SuppressWarnings("rawtypes")
-    protected <E, C extends DataProcessorContext> Comparator<DataProcessor<E, C>> buildComparator(Map<DataProcessor, List<? super DataScope>> dataProcessorToDataScopesMap,
-            Map<DataProcessor, Set<DataScope>> dataProcessorToRequiredDataScopesMap) {
-        BiFunction<List<? super DataScope>, Set<DataScope>, Boolean> isLeftRequiredByRight = isLeftRequiredByRight();
+    /**
+     * Evaluates lazily - directly before the execution of the node - which of its entities still need the data processor. This is important as upstream entity updaters may have changed the outcome of
+     * {@link DataProcessor#expectsExecution(Object, Object)}
+     *
+     * @param <E>
+     * @param <C>
+     * @param node
+     * @param executionState
+     * @param cs
+     * @return The task to execute or null if there is nothing to do for the node
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> StageTask<E, C> resolveDataProcessorNodeTask(DataProcessorNode<E, C> node, ExecutionState<E, C> executionState, ContextSnapshot cs) {
+        var dataProcessor = node.dataProcessor;
+        if (dataProcessor instanceof BatchDataProcessor) {
+            var batchDataProcessor = (BatchDataProcessor<E, C>) dataProcessor;
+            var pendingItems = node.items.stream()//
+                    .filter(item -> !isSkippedDueToFailure(item))//
+                    .filter(item -> isExecutionExpected(item, executionState))//
+                    .filter(item -> isBatchItemPending(batchDataProcessor, item, executionState))//
+                    .collect(Collectors.toList());
+            if (pendingItems.isEmpty()) {
+                return null;
+            }
+            // the timeout belongs to the batch data processor and is therefore the same for all entities of the chunk
+            return new StageTask<>(asyncProcessBatch(batchDataProcessor, pendingItems, executionState, cs), pendingItems, resolveDeadlineNanos(pendingItems.get(0)
+                    .getTimeoutNanos(), executionState), cs);
+        }
+        var item = node.items.get(0);
+        if (isSkippedDueToFailure(item) || !isExecutionExpected(item, executionState)) {
+            return null;
+        }
+        var callable = resolveCallable(item, executionState);
+        if (callable == null) {
+            return null;
+        }
+        return new StageTask<>(callable, item, resolveDeadlineNanos(item.getTimeoutNanos(), executionState), cs);
+    }
 
-        return (left, right) -> {
-            var leftRequiredDataScopes = dataProcessorToRequiredDataScopesMap.get(left);
-            var rightRequiredDataScopes = dataProcessorToRequiredDataScopesMap.get(right);
-            if (leftRequiredDataScopes == null || leftRequiredDataScopes.isEmpty()) {
-                if (rightRequiredDataScopes == null || rightRequiredDataScopes.isEmpty()) {
-                    return 0;
-                }
-                var leftDataScopes = dataProcessorToDataScopesMap.get(left);
-                if (isLeftRequiredByRight.apply(leftDataScopes, rightRequiredDataScopes)) {
-                    return -1;
+    /**
+     * Evaluates {@link DataProcessor#expectsExecution(Object, Object)} for the given item and reports a skipped data processor
+     *
+     * @param <E>
+     * @param <C>
+     * @param item
+     * @param executionState
+     * @return false if the data processor is skipped for the entity of the item or if the evaluation failed and has been recorded as failure of the entity
+     */
+    protected <E, C extends DataProcessorContext> boolean isExecutionExpected(RunnableSupplier<E, C> item, ExecutionState<E, C> executionState) {
+        try {
+            if (item.getDataProcessor()
+                    .expectsExecution(item.getEntity(), item.getDataProcessorContext())) {
+                return true;
+            }
+        } catch (Throwable e) {
+            recordBuildFailure(item, e, executionState);
+            return false;
+        }
+        notifyDataProcessorSkipped(item.getDataProcessor(), item.getEntity(), executionState);
+        return false;
+    }
+
+    /**
+     * @param <E>
+     * @param <C>
+     * @param item
+     * @param executionState
+     * @return The callable of the given item. Null if there is nothing to do for the item or if resolving the callable - e.g. the domain ref of the entity - failed and has been recorded as failure
+     *         of the entity
+     */
+    protected <E, C extends DataProcessorContext> Callable<CheckedConsumer<E>> resolveCallable(RunnableSupplier<E, C> item, ExecutionState<E, C> executionState) {
+        try {
+            return item.getSupplier()
+                    .get();
+        } catch (Throwable e) {
+            recordBuildFailure(item, e, executionState);
+            return null;
+        }
+    }
+
+    /**
+     * @param <E>
+     * @param <C>
+     * @param batchDataProcessor
+     * @param item
+     * @param executionState
+     * @return false if the data scopes of the given item have already been processed for its entity or if the evaluation failed and has been recorded as failure of the entity
+     */
+    protected <E, C extends DataProcessorContext> boolean isBatchItemPending(BatchDataProcessor<E, C> batchDataProcessor, RunnableSupplier<E, C> item, ExecutionState<E, C> executionState) {
+        try {
+            return !isDataScopeAlreadyProcessed(batchDataProcessor, item.getDataProcessorContext(), item.getEntity(), item.getDataScopes(), item.getDataScopeBits(), executionState);
+        } catch (Throwable e) {
+            recordBuildFailure(item, e, executionState);
+            return false;
+        }
+    }
+
+    /**
+     * Handles the failure of a single item while its task is built. Without failures per entity it aborts the whole call just like a failing data processor
+     *
+     * @param <E>
+     * @param <C>
+     * @param item
+     * @param failure
+     * @param executionState
+     */
+    protected <E, C extends DataProcessorContext> void recordBuildFailure(RunnableSupplier<E, C> item, Throwable failure, ExecutionState<E, C> executionState) {
+        if (executionState.getFailures() == null) {
+            throw sneakyThrowUtil.sneakyThrow(failure);
+        }
+        recordFailure(List.of(item), failure, executionState);
+    }
+
+    /**
+     * Records the failure to build the context of the given entity for each data processor of its plan - none of them can be executed for the entity. Without failures per entity it aborts the whole
+     * call
+     *
+     * @param <E>
+     * @param <C>
+     * @param plan
+     * @param entity
+     * @param failure
+     * @param executionState
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> void recordContextFailure(DataProcessorPlanImpl<E> plan, E entity, Throwable failure, ExecutionState<E, C> executionState) {
+        var failures = executionState.getFailures();
+        if (failures == null) {
+            throw sneakyThrowUtil.sneakyThrow(failure);
+        }
+        for (var dataProcessor : plan.getDataProcessors()) {
+            failures.add(new DataProcessorFailure<>(entity, (DataProcessor<E, ?>) dataProcessor, failure));
+        }
+    }
+
+    protected int resolveMaxBatchSize(BatchDataProcessor<?, ?> batchDataProcessor) {
+        var maxBatchSize = batchDataProcessor.getMaxBatchSize();
+        if (maxBatchSize > 0) {
+            return maxBatchSize;
+        }
+        return Math.max(defaultMaxBatchSize, 1);
+    }
+
+    protected <E, C extends DataProcessorContext> void updateEntities(List<StageTask<E, C>> stageTasks, ExecutionState<E, C> executionState) {
+        for (int a = 0, size = stageTasks.size(); a < size; a++) {
+            var stageTask = stageTasks.get(a);
+            try {
+                stageTask.updateEntities(resolveEntityUpdaters(stageTask));
+            } catch (Throwable e) {
+                if (executionState.getFailures() != null) {
+                    recordFailure(stageTask.items, e, executionState);
+                    continue;
                 }
+                var ex = sneakyThrowUtil.mergeStackTraceWithCause(e);
+                throw sneakyThrowUtil.sneakyThrow(ex);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> List<List<RunnableSupplier<E, C>>> buildDataProcessorStages(Function<E, DataProcessorPlanImpl<E>> planProvider, Collection<?> entityList,
+            ExecutionState<E, C> executionState, ContextSnapshot cs) {
+        var contextBuilder = executionState.getContextBuilder();
+        var stageToRunnableSuppliersList = new ArrayList<List<RunnableSupplier<E, C>>>();
+
+        for (var entityObject : entityList) {
+            if (entityObject == null) {
+                continue;
+            }
+            E entity = (E) entityObject;
+            var plan = planProvider.apply(entity);
+            var stages = plan.getStages();
+            if (stages.length == 0) {
+                notifyEntityWithoutDataProcessors(entity, executionState);
+                continue;
+            }
+            C dataProcessorContext;
+            try {
+                dataProcessorContext = contextBuilder.apply(entity);
+            } catch (Throwable e) {
+                recordContextFailure(plan, entity, e, executionState);
+                continue;
             }
-            if (rightRequiredDataScopes == null || rightRequiredDataScopes.isEmpty()) {
-                // a data processor with dependencies is always AFTER a data processor without
-                // any dependencies
-                var rightDataScopes = dataProcessorToDataScopesMap.get(right);
-                if (isLeftRequiredByRight.apply(rightDataScopes, leftRequiredDataScopes)) {
-                    return 1;
+            var pendingDataProcessorCountOfEntity = createPendingDataProcessorCountOfEntity(plan, executionState);
+            var failureTracker = createEntityFailureTracker(plan, executionState);
+
+            // merge all data processors for the current entity with the global stage that
+            // processes all entities in a batch-per-stage manner
+            for (int stageLevel = 0, size = stages.length; stageLevel < size; stageLevel++) {
+                if (stageToRunnableSuppliersList.size() <= stageLevel) {
+                    stageToRunnableSuppliersList.add(new ArrayList<>());
+                }
+                var runnableSuppliersList = stageToRunnableSuppliersList.get(stageLevel);
+                for (var dataProcessorIndex : stages[stageLevel]) {
+                    runnableSuppliersList.add(createRunnableSupplier(plan, dataProcessorIndex, dataProcessorContext, entity, pendingDataProcessorCountOfEntity, failureTracker, executionState, cs));
                 }
             }
-            // that is the only interesting case: both data processor have requirements.
-            // lets check for semantic order
-            var leftDataScopes = dataProcessorToDataScopesMap.get(left);
-            if (isLeftRequiredByRight.apply(leftDataScopes, rightRequiredDataScopes)) {
-                return -1;
+        }
+        return stageToRunnableSuppliersList;
+    }
+
+    protected <E, C extends DataProcessorContext> AtomicInteger createPendingDataProcessorCountOfEntity(DataProcessorPlanImpl<E> plan, ExecutionState<E, C> executionState) {
+        if (executionState.getEntityProcessedConsumer() == null) {
+            return null;
+        }
+        return new AtomicInteger(plan.getDataProcessorCount());
+    }
+
+    protected <E, C extends DataProcessorContext> EntityFailureTracker createEntityFailureTracker(DataProcessorPlanImpl<E> plan, ExecutionState<E, C> executionState) {
+        if (executionState.getFailures() == null) {
+            return null;
+        }
+        return new EntityFailureTracker(plan.getPredecessors());
+    }
+
+    protected <E, C extends DataProcessorContext> void notifyEntityWithoutDataProcessors(E entity, ExecutionState<E, C> executionState) {
+        var entityProcessedConsumer = executionState.getEntityProcessedConsumer();
+        if (entityProcessedConsumer != null) {
+            entityProcessedConsumer.accept(entity);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> RunnableSupplier<E, C> createRunnableSupplier(DataProcessorPlanImpl<E> plan, int dataProcessorIndex, C dataProcessorContext, E entity,
+            AtomicInteger pendingDataProcessorCountOfEntity, EntityFailureTracker failureTracker, ExecutionState<E, C> executionState, ContextSnapshot cs) {
+        var dataProcessor = (DataProcessor<E, C>) plan.getDataProcessors()[dataProcessorIndex];
+        var dataScopes = plan.getDataScopesOfDataProcessors()[dataProcessorIndex];
+        var dataScopeBits = plan.getDataScopeBitsOfDataProcessors()[dataProcessorIndex];
+        var exceptionHandler = plan.getExceptionHandlers()[dataProcessorIndex];
+        var timeoutNanos = plan.getTimeoutNanosOfDataProcessors()[dataProcessorIndex];
+        var coalescing = plan.getCoalescingOfDataProcessors()[dataProcessorIndex];
+        var timeToLive = plan.getTimeToLiveOfDataProcessors()[dataProcessorIndex];
+        var concurrentEntityUpdate = plan.getConcurrentEntityUpdateOfDataProcessors()[dataProcessorIndex];
+        var costEstimateNanos = plan.getCostEstimateNanosOfDataProcessors()[dataProcessorIndex];
+        var bulkhead = plan.getBulkheadsOfDataProcessors()[dataProcessorIndex];
+        var hedgingPercentile = plan.getHedgingPercentileOfDataProcessors()[dataProcessorIndex];
+        return new RunnableSupplier<E, C>(dataProcessor, dataProcessorContext, entity, dataScopes, dataScopeBits, exceptionHandler, timeoutNanos, concurrentEntityUpdate, costEstimateNanos,
+                bulkhead, pendingDataProcessorCountOfEntity, dataProcessorIndex, failureTracker,
+                () -> asyncProcess(dataProcessor, exceptionHandler, coalescing, timeToLive, hedgingPercentile, dataProcessorContext, entity, dataScopes, dataScopeBits, executionState, cs));
+    }
+
+    /**
+     * Builds the dependency graph for {@link DataProcessorExecutionMode#DEPENDENCY_DRIVEN} mode. Each data processor of an entity depends only on the data processors of the same entity that provide
+     * one of its required data scopes.
+     *
+     * @param <E>
+     * @param <C>
+     * @param planProvider
+     * @param executionState
+     * @param cs
+     * @return All nodes without any predecessor
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> List<DataProcessorNode<E, C>> buildDataProcessorGraph(Function<E, DataProcessorPlanImpl<E>> planProvider,
+            ExecutionState<E, C> executionState, ContextSnapshot cs) {
+        var contextBuilder = executionState.getContextBuilder();
+        var allNodes = new ArrayList<DataProcessorNode<E, C>>();
+        var batchDataProcessorToOpenNodeMap = new HashMap<DataProcessor<E, C>, DataProcessorNode<E, C>>();
+
+        for (var entityObject : executionState.getEntityList()) {
+            if (entityObject == null) {
+                continue;
             }
-            var rightDataScopes = dataProcessorToDataScopesMap.get(right);
-            if (isLeftRequiredByRight.apply(rightDataScopes, leftRequiredDataScopes)) {
-                return 1;
+            E entity = (E) entityObject;
+            var plan = planProvider.apply(entity);
+            var dataProcessors = plan.getDataProcessors();
+            if (dataProcessors.length == 0) {
+                notifyEntityWithoutDataProcessors(entity, executionState);
+                continue;
             }
-            return 0;
-        };
+            C dataProcessorContext;
+            try {
+                dataProcessorContext = contextBuilder.apply(entity);
+            } catch (Throwable e) {
+                recordContextFailure(plan, entity, e, executionState);
+                continue;
+            }
+            var pendingDataProcessorCountOfEntity = createPendingDataProcessorCountOfEntity(plan, executionState);
+            var failureTracker = createEntityFailureTracker(plan, executionState);
+            var predecessors = plan.getPredecessors();
+            var nodes = (DataProcessorNode<E, C>[]) new DataProcessorNode[dataProcessors.length];
+
+            // the index order of the plan is compatible with the stage order. so all upstream data processors of an
+            // entity already have their node when we process a downstream data processor
+            for (int dataProcessorIndex = 0, size = dataProcessors.length; dataProcessorIndex < size; dataProcessorIndex++) {
+                var node = resolveDataProcessorNode((DataProcessor<E, C>) dataProcessors[dataProcessorIndex], batchDataProcessorToOpenNodeMap, allNodes);
+                node.items.add(createRunnableSupplier(plan, dataProcessorIndex, dataProcessorContext, entity, pendingDataProcessorCountOfEntity, failureTracker, executionState, cs));
+                for (var predecessorIndex : predecessors[dataProcessorIndex]) {
+                    linkDataProcessorNodes(nodes[predecessorIndex], node);
+                }
+                nodes[dataProcessorIndex] = node;
+            }
+        }
+        var rootNodes = new ArrayList<DataProcessorNode<E, C>>();
+        for (var node : allNodes) {
+            node.predecessors = null;
+            if (node.pendingPredecessorCount.get() == 0) {
+                rootNodes.add(node);
+            }
+        }
+        return rootNodes;
     }
 
-    protected BiFunction<List<? super DataScope>, Set<DataScope>, Boolean> isLeftRequiredByRight() {
-        return (leftDataScopes, rightRequiredDataScopes) -> leftDataScopes.stream()//
-                .anyMatch(rightRequiredDataScopes::contains);
+    protected <E, C extends DataProcessorContext> DataProcessorNode<E, C> resolveDataProcessorNode(DataProcessor<E, C> dataProcessor,
+            Map<DataProcessor<E, C>, DataProcessorNode<E, C>> batchDataProcessorToOpenNodeMap, List<DataProcessorNode<E, C>> allNodes) {
+        if (dataProcessor instanceof BatchDataProcessor) {
+            var openNode = batchDataProcessorToOpenNodeMap.get(dataProcessor);
+            if (openNode != null && openNode.items.size() < resolveMaxBatchSize((BatchDataProcessor<E, C>) dataProcessor)) {
+                return openNode;
+            }
+            var node = new DataProcessorNode<E, C>(dataProcessor);
+            batchDataProcessorToOpenNodeMap.put(dataProcessor, node);
+            allNodes.add(node);
+            return node;
+        }
+        var node = new DataProcessorNode<E, C>(dataProcessor);
+        allNodes.add(node);
+        return node;
     }
 
-    @SuppressWarnings("rawtypes")
-    protected <E, C extends DataProcessorContext> void addToStageOrAppendStageAfterIndex(DataProcessor<E, C> dataProcessor, Collection<DataScope> dataScopesOfDataProcessor,
-            ArrayList<Map<DataProcessor<E, C>, Collection<DataScope>>> dataProcessorChain, int stageIndex, Map<DataProcessor, Set<DataScope>> dataProcessorToRequiredDataScopesMap) {
-        var stage = dataProcessorChain.get(stageIndex);
-        if (stage.isEmpty()) {
-            stage.put(dataProcessor, dataScopesOfDataProcessor);
+    protected <E, C extends DataProcessorContext> void linkDataProcessorNodes(DataProcessorNode<E, C> upstreamNode, DataProcessorNode<E, C> downstreamNode) {
+        if (upstreamNode == downstreamNode) {
             return;
         }
-        var processorDependsOnStage = stage.entrySet()
-                .stream()
-                .anyMatch(entry -> {
-                    var doesDepend = entry.getValue()
-                            .stream()
-                            .anyMatch(dataScopeInStage -> {
-                                var requiredDataScopes = dataProcessorToRequiredDataScopesMap.get(dataProcessor);
-                                if (requiredDataScopes == null || requiredDataScopes.isEmpty()) {
-                                    return false;
-                                }
-                                return requiredDataScopes.contains(dataScopeInStage);
-                            });
-                    if (doesDepend) {
-                        return true;
-                    }
-                    var requiredDataScopes = dataProcessorToRequiredDataScopesMap.get(entry.getKey());
-                    if (requiredDataScopes == null || requiredDataScopes.isEmpty()) {
-                        return false;
+        if (downstreamNode.predecessors == null) {
+            downstreamNode.predecessors = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+        if (!downstreamNode.predecessors.add(upstreamNode)) {
+            return;
+        }
+        upstreamNode.successors.add(downstreamNode);
+        downstreamNode.pendingPredecessorCount.incrementAndGet();
+    }
+
+    /**
+     * Resolves the compiled plan of applicable data processors for the given data scopes. The result is cached per entity type and data scope set on the configuration state of the given execution
+     * state.
+     *
+     * @param <E>
+     * @param <C>
+     * @param dataScopes
+     * @param executionState
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> DataProcessorPlanImpl<E> resolveDataProcessorPlan(Collection<DataScope> dataScopes, ExecutionState<E, C> executionState) {
+        var normalizedDataScopes = dataScopes != null ? Set.copyOf(dataScopes) : Set.<DataScope> of();
+        var dataProcessorPlanCache = executionState.getConfigurationState()
+                .getDataProcessorPlanCache(maxCachedPlans);
+        var key = new DataProcessorPlanKey(executionState.getEntityType(), normalizedDataScopes);
+        var plan = dataProcessorPlanCache.get(key);
+        if (plan != null) {
+            return (DataProcessorPlanImpl<E>) plan;
+        }
+        var startNanos = System.nanoTime();
+        var dataProcessorChain = normalizedDataScopes.isEmpty() ? List.<Map<DataProcessor<E, C>, Collection<DataScope>>> of()
+                : buildApplicableDataProcessorsChain(dataScopes, executionState);
+        var newPlan = compileDataProcessorPlan(normalizedDataScopes, dataProcessorChain, executionState);
+        var executionListener = executionState.getConfigurationState()
+                .getExecutionListener();
+        if (executionListener != null) {
+            executionListener.planCompiled(newPlan, System.nanoTime() - startNanos);
+        }
+        // concurrent callers may have compiled the same plan in the meantime. they are equivalent anyway
+        dataProcessorPlanCache.putIfAbsent(key, newPlan);
+        return newPlan;
+    }
+
+    /**
+     * Flattens the given chain into an array based plan. All data processors get an index in stage order and their exception handlers and dependencies are resolved once.
+     *
+     * @param <E>
+     * @param <C>
+     * @param dataScopes
+     * @param dataProcessorChain
+     * @param executionState
+     * @return
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected <E, C extends DataProcessorContext> DataProcessorPlanImpl<E> compileDataProcessorPlan(Set<DataScope> dataScopes,
+            List<Map<DataProcessor<E, C>, Collection<DataScope>>> dataProcessorChain, ExecutionState<E, C> executionState) {
+        var configurationState = executionState.getConfigurationState();
+        var dataProcessorToRequiredDataScopeBitsMap = configurationState.getDataProcessorToRequiredDataScopeBitsCascadeMap();
+        var dataProcessorToDataScopeBitsMap = configurationState.getDataProcessorToDataScopeBitsMap();
+        var dataProcessorToExceptionHandlerMap = configurationState.getDataProcessorToExceptionHandlerMap();
+        var dataProcessorToTimeoutMap = configurationState.getDataProcessorToTimeoutMap();
+        var coalescingDataProcessors = configurationState.getCoalescingDataProcessors();
+        var dataProcessorToTimeToLiveMap = configurationState.getDataProcessorToTimeToLiveMap();
+        var concurrentEntityUpdateDataProcessors = configurationState.getConcurrentEntityUpdateDataProcessors();
+        var dataProcessorToCostEstimateMap = configurationState.getDataProcessorToCostEstimateMap();
+        var dataProcessorToBulkheadMap = configurationState.getDataProcessorToBulkheadMap();
+        var dataProcessorToHedgingPercentileMap = configurationState.getDataProcessorToHedgingPercentileMap();
+
+        var dataProcessorCount = dataProcessorChain.stream()
+                .mapToInt(Map::size)
+                .sum();
+        var dataProcessors = new DataProcessor[dataProcessorCount];
+        var dataScopesOfDataProcessors = (Collection<DataScope>[]) new Collection[dataProcessorCount];
+        var dataScopeBitsOfDataProcessors = new long[dataProcessorCount][];
+        var exceptionHandlers = new DataProcessorExceptionHandler[dataProcessorCount];
+        var timeoutNanosOfDataProcessors = new long[dataProcessorCount];
+        var coalescingOfDataProcessors = new boolean[dataProcessorCount];
+        var timeToLiveOfDataProcessors = new Duration[dataProcessorCount];
+        var concurrentEntityUpdateOfDataProcessors = new boolean[dataProcessorCount];
+        var costEstimateNanosOfDataProcessors = new long[dataProcessorCount];
+        var bulkheadsOfDataProcessors = new DataProcessorBulkhead[dataProcessorCount];
+        var hedgingPercentileOfDataProcessors = new double[dataProcessorCount];
+        var stages = new int[dataProcessorChain.size()][];
+        var predecessors = new int[dataProcessorCount][];
+
+        var dataProcessorIndex = 0;
+        for (int stageIndex = 0, size = dataProcessorChain.size(); stageIndex < size; stageIndex++) {
+            var dataProcessorsOfStage = dataProcessorChain.get(stageIndex);
+            var stage = new int[dataProcessorsOfStage.size()];
+            var indexInStage = 0;
+            for (var entry : dataProcessorsOfStage.entrySet()) {
+                var dataProcessor = entry.getKey();
+                dataProcessors[dataProcessorIndex] = dataProcessor;
+                dataScopesOfDataProcessors[dataProcessorIndex] = entry.getValue();
+                dataScopeBitsOfDataProcessors[dataProcessorIndex] = dataProcessorToDataScopeBitsMap.getOrDefault(dataProcessor, DataScopeRegistry.EMPTY_BITS);
+
+                var exceptionHandlersOfDataProcessor = dataProcessorToExceptionHandlerMap.get(dataProcessor);
+                if (exceptionHandlersOfDataProcessor != null && !exceptionHandlersOfDataProcessor.isEmpty()) {
+                    exceptionHandlers[dataProcessorIndex] = (DataProcessorExceptionHandler) exceptionHandlersOfDataProcessor.get(exceptionHandlersOfDataProcessor.size() - 1);
+                }
+                var timeoutsOfDataProcessor = dataProcessorToTimeoutMap.get(dataProcessor);
+                if (timeoutsOfDataProcessor != null && !timeoutsOfDataProcessor.isEmpty()) {
+                    timeoutNanosOfDataProcessors[dataProcessorIndex] = ((Duration) timeoutsOfDataProcessor.get(timeoutsOfDataProcessor.size() - 1)).toNanos();
+                }
+                coalescingOfDataProcessors[dataProcessorIndex] = coalescingDataProcessors.contains(dataProcessor);
+                var timeToLivesOfDataProcessor = dataProcessorToTimeToLiveMap.get(dataProcessor);
+                if (timeToLivesOfDataProcessor != null && !timeToLivesOfDataProcessor.isEmpty()) {
+                    timeToLiveOfDataProcessors[dataProcessorIndex] = (Duration) timeToLivesOfDataProcessor.get(timeToLivesOfDataProcessor.size() - 1);
+                }
+                concurrentEntityUpdateOfDataProcessors[dataProcessorIndex] = concurrentEntityUpdateDataProcessors.contains(dataProcessor);
+                var costEstimatesOfDataProcessor = dataProcessorToCostEstimateMap.get(dataProcessor);
+                if (costEstimatesOfDataProcessor != null && !costEstimatesOfDataProcessor.isEmpty()) {
+                    costEstimateNanosOfDataProcessors[dataProcessorIndex] = ((Duration) costEstimatesOfDataProcessor.get(costEstimatesOfDataProcessor.size() - 1)).toNanos();
+                }
+                bulkheadsOfDataProcessors[dataProcessorIndex] = dataProcessorToBulkheadMap.get(dataProcessor);
+                var hedgingPercentilesOfDataProcessor = dataProcessorToHedgingPercentileMap.get(dataProcessor);
+                if (hedgingPercentilesOfDataProcessor != null && !hedgingPercentilesOfDataProcessor.isEmpty()) {
+                    hedgingPercentileOfDataProcessors[dataProcessorIndex] = (Double) hedgingPercentilesOfDataProcessor.get(hedgingPercentilesOfDataProcessor.size() - 1);
+                }
+                // a data processor depends on each data processor of an upstream stage that provides one of its required data scopes
+                var requiredDataScopeBits = dataProcessorToRequiredDataScopeBitsMap.get(dataProcessor);
+                var predecessorsOfDataProcessor = new ArrayList<Integer>();
+                if (requiredDataScopeBits != null) {
+                    var firstIndexOfStage = dataProcessorIndex - indexInStage;
+                    for (int upstreamIndex = 0; upstreamIndex < firstIndexOfStage; upstreamIndex++) {
+                        if (isLeftRequiredByRight(dataProcessorToDataScopeBitsMap.get(dataProcessors[upstreamIndex]), requiredDataScopeBits)) {
+                            predecessorsOfDataProcessor.add(upstreamIndex);
+                        }
                     }
-                    return dataScopesOfDataProcessor.stream()
-                            .anyMatch(requiredDataScopes::contains);
-                });
+                }
+                predecessors[dataProcessorIndex] = predecessorsOfDataProcessor.stream()
+                        .mapToInt(Integer::intValue)
+                        .toArray();
+                stage[indexInStage++] = dataProcessorIndex++;
+            }
+            stages[stageIndex] = stage;
+        }
+        return new DataProcessorPlanImpl<>(configurationState, executionState.getEntityType(), dataScopes, dataProcessors, dataScopesOfDataProcessors, dataScopeBitsOfDataProcessors,
+                exceptionHandlers, timeoutNanosOfDataProcessors,
+                coalescingOfDataProcessors, timeToLiveOfDataProcessors, concurrentEntityUpdateOfDataProcessors, costEstimateNanosOfDataProcessors,
+                bulkheadsOfDataProcessors, hedgingPercentileOfDataProcessors, stages, predecessors);
+    }
 
-        if (processorDependsOnStage) {
-            dataProcessorChain.add(stageIndex + 1, new LinkedHashMap<DataProcessor<E, C>, Collection<DataScope>>());
-            stage = dataProcessorChain.get(stageIndex + 1);
+    /**
+     * Groups the applicable data processors into stages by their topological level - see {@link ConfigurationState#getEntityTypeToDataProcessorToLevelMap()}. As the applicable data processors
+     * include all data processors they depend on, no level in between is ever empty.
+     *
+     * @param <E>
+     * @param <C>
+     * @param dataScopes
+     * @param executionState
+     * @return
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    protected <E, C extends DataProcessorContext> List<Map<DataProcessor<E, C>, Collection<DataScope>>> buildApplicableDataProcessorsChain(Collection<DataScope> dataScopes,
+            ExecutionState<E, C> executionState) {
+        var allApplicableDataProcessors = resolveAllApplicableDataProcessors(dataScopes, executionState);
+        var configurationState = executionState.getConfigurationState();
+        Map<DataProcessor, Integer> dataProcessorToLevelMap = configurationState.getEntityTypeToDataProcessorToLevelMap()
+                .getOrDefault(executionState.getEntityType(), Map.of());
+        var dataProcessorToDataScopesMap = configurationState.getDataProcessorToDataScopesMap();
+        var levelToStageMap = new TreeMap<Integer, Map<DataProcessor<E, C>, Collection<DataScope>>>();
+
+        for (var dataProcessor : allApplicableDataProcessors) {
+            levelToStageMap.computeIfAbsent(dataProcessorToLevelMap.getOrDefault(dataProcessor, 0), level -> new LinkedHashMap<>())
+                    .put(dataProcessor, (Collection<DataScope>) dataProcessorToDataScopesMap.get(dataProcessor));
         }
-        // dataProcessor does not depend on current stage, but maybe one of the existing
-        // chained processors there does
+        return new ArrayList<>(levelToStageMap.values());
+    }
 
-        stage.put(dataProcessor, dataScopesOfDataProcessor);
+    protected boolean isLeftRequiredByRight(long[] leftDataScopeBits, long[] rightRequiredDataScopeBits) {
+        return leftDataScopeBits != null && DataScopeRegistry.intersects(leftDataScopeBits, rightRequiredDataScopeBits);
     }
 
     protected <E, C extends DataProcessorContext> List<DataProcessor<E, C>> resolveAllApplicableDataProcessors(Collection<DataScope> dataScopes, ExecutionState<E, C> executionState) {
-        var dataProcessorToDataScopesMap = executionState.getConfigurationState()
-                .getDataProcessorToDataScopesMap();
-        var dataProcessorToRequiredDataScopesMap = executionState.getConfigurationState()
-                .getDataProcessorToRequiredDataScopesCascadeMap();
-        var alreadyProcessedDataScopes = new HashSet<>();
-        var pendingDataScopes = new LinkedHashSet<>(dataScopes);
+        var configurationState = executionState.getConfigurationState();
+        var dataScopeRegistry = configurationState.getDataScopeRegistry();
+        var dataProcessorToRequiredDataScopeBitsMap = configurationState.getDataProcessorToRequiredDataScopeBitsCascadeMap();
+        var alreadyProcessedDataScopeBits = DataScopeRegistry.EMPTY_BITS;
+        var pendingDataScopes = dataScopes;
         List<DataProcessor<E, C>> allApplicableDataProcessors = new ArrayList<>();
         while (!pendingDataScopes.isEmpty()) {
             List<DataProcessor<E, C>> applicableDataProcessors = resolveApplicableDataProcessors(pendingDataScopes, executionState);
             allApplicableDataProcessors.addAll(applicableDataProcessors);
 
-            alreadyProcessedDataScopes.addAll(pendingDataScopes);
-            pendingDataScopes.clear();
+            alreadyProcessedDataScopeBits = DataScopeRegistry.or(alreadyProcessedDataScopeBits, dataScopeRegistry.toBits(pendingDataScopes));
 
-            applicableDataProcessors.forEach(dataProcessor -> {
-                var requiringDataScopes = dataProcessorToRequiredDataScopesMap.get(dataProcessor);
-                if (requiringDataScopes == null || requiringDataScopes.isEmpty()) {
-                    return;
+            var pendingDataScopeBits = DataScopeRegistry.EMPTY_BITS;
+            for (var dataProcessor : applicableDataProcessors) {
+                var requiringDataScopeBits = dataProcessorToRequiredDataScopeBitsMap.get(dataProcessor);
+                if (requiringDataScopeBits != null) {
+                    pendingDataScopeBits = DataScopeRegistry.or(pendingDataScopeBits, DataScopeRegistry.andNot(requiringDataScopeBits, alreadyProcessedDataScopeBits));
                 }
-                requiringDataScopes.stream()
-                        .forEach(requiringDataScope -> {
-                            if (!alreadyProcessedDataScopes.contains(requiringDataScope)) {
-                                pendingDataScopes.add(requiringDataScope);
-                            }
-                        });
-            });
+            }
+            pendingDataScopes = dataScopeRegistry.toDataScopes(pendingDataScopeBits);
         }
-        Collections.sort(allApplicableDataProcessors, buildComparator(dataProcessorToDataScopesMap, dataProcessorToRequiredDataScopesMap));
         return allApplicableDataProcessors;
     }
 
@@ -730,44 +3092,59 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
      * @param <C>
      *            The processor context type
      * @param dataProcessor
+     * @param exceptionHandler
+     *            The resolved exception handler of the data processor. May be null
+     * @param coalescing
+     *            Whether concurrent executions for the same domain ref and data scopes share a single invocation of the data processor
+     * @param timeToLive
+     *            The time to live of cached results of the data processor. Null if its results are not cached
      * @param processorContext
      * @param entity
      *            The processed entity
      * @return
      */
-    protected <E, C extends DataProcessorContext> Callable<CheckedConsumer<E>> asyncProcess(DataProcessor<E, C> dataProcessor, C processorContext, E entity, Collection<DataScope> dataScopes,
-            ExecutionState<E, C> executionState, ContextSnapshot cs) {
-        var entityToUsedDataScopes = executionState.getEntityToUsedDataScopes();
-        if (entityToUsedDataScopes != null) {
-            var domainRef = processorContext.extractDomainRef(entity);
-            if (domainRef != null) {
-                var processorType = dataProcessor.getClass()
-                        .getName();
-                var processorToUsedDataScopes = entityToUsedDataScopes.computeIfAbsent(domainRef, currentDomainRef -> new HashMap<>());
-                var usedDataScopes = processorToUsedDataScopes.computeIfAbsent(processorType, currentProcessorType -> new HashSet<>());
-                boolean scopeAlreadyProcessedOnEntity = dataScopes.stream()
-                        .map(usedDataScopes::contains)
-                        .findFirst()
-                        .orElse(Boolean.FALSE);
-                usedDataScopes.addAll(dataScopes);
-
-                if (scopeAlreadyProcessedOnEntity) {
-                    if (log.isDebugEnabled()) {
-                        log.debug("Skipped data processor '{}' for entity '{}'!", dataProcessor.getClass()
-                                .getSimpleName(), domainRef);
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> Callable<CheckedConsumer<E>> asyncProcess(DataProcessor<E, C> dataProcessor, DataProcessorExceptionHandler exceptionHandler, boolean coalescing,
+            Duration timeToLive, double hedgingPercentile, C processorContext, E entity, Collection<DataScope> dataScopes, long[] dataScopeBits, ExecutionState<E, C> executionState,
+            ContextSnapshot cs) {
+        if (isDataScopeAlreadyProcessed(dataProcessor, processorContext, entity, dataScopes, dataScopeBits, executionState)) {
+            return null;
+        }
+        var invocationKey = coalescing || timeToLive != null ? createInvocationKey(dataProcessor, processorContext, entity, dataScopes) : null;
+        if (invocationKey != null) {
+            return () -> {
+                var revert = cs.apply();
+                try {
+                    return processShared(dataProcessor, processorContext, invocationKey, coalescing, timeToLive);
+                } catch (Throwable e) {
+                    if (exceptionHandler == null) {
+                        throw e;
                     }
-                    return null;
+                    return exceptionHandler.handleProcessException(dataProcessor, processorContext, e);
+                } finally {
+                    revert.revert();
                 }
-                if (log.isDebugEnabled()) {
-                    log.debug("Calling data processor '{}' for entity '{}'...", dataProcessor.getClass()
-                            .getSimpleName(), domainRef);
+            };
+        }
+        if (hedgingPercentile > 0) {
+            return () -> {
+                var revert = cs.apply();
+                try {
+                    return processHedged(dataProcessor, processorContext, hedgingPercentile, cs);
+                } catch (Throwable e) {
+                    if (exceptionHandler == null) {
+                        throw e;
+                    }
+                    return exceptionHandler.handleProcessException(dataProcessor, processorContext, e);
+                } finally {
+                    revert.revert();
                 }
-            }
+            };
         }
-        var dataProcessorToExceptionHandlerMap = executionState.getConfigurationState()
-                .getDataProcessorToExceptionHandlerMap();
-        var exceptionHandlers = dataProcessorToExceptionHandlerMap.get(dataProcessor);
-        if (exceptionHandlers == null || exceptionHandlers.isEmpty()) {
+        if (dataProcessor instanceof NonBlockingDataProcessor) {
+            return new NonBlockingInvocation<>((NonBlockingDataProcessor<E, C>) dataProcessor, exceptionHandler, processorContext, cs);
+        }
+        if (exceptionHandler == null) {
             return () -> {
                 var revert = cs.apply();
                 try {
@@ -782,8 +3159,7 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
                 try {
                     return dataProcessor.process(processorContext);
                 } catch (Throwable e) {
-                    var lastExceptionHandler = (DataProcessorExceptionHandler) exceptionHandlers.get(exceptionHandlers.size() - 1);
-                    return lastExceptionHandler.handleProcessException(dataProcessor, processorContext, e);
+                    return exceptionHandler.handleProcessException(dataProcessor, processorContext, e);
                 } finally {
                     revert.revert();
                 }
@@ -791,90 +3167,541 @@ public class AsyncDataProcessorImpl implements AsyncDataProcessor, DataProcessor
         }
     }
 
-    @SuppressWarnings({ "rawtypes", "unchecked" })
+    /**
+     * Invokes the given data processor on another thread and launches a second invocation if the first one did not finish within the given percentile of the recently observed latencies. The current
+     * thread waits for the first finished invocation, which provides the outcome and interrupts the other one.
+     *
+     * @param <E>
+     * @param <C>
+     * @param dataProcessor
+     * @param processorContext
+     * @param hedgingPercentile
+     * @param cs
+     *            Applied on the threads of both invocations
+     * @return
+     * @throws Exception
+     *             The failure of the first finished invocation
+     */
+    protected <E, C extends DataProcessorContext> CheckedConsumer<E> processHedged(DataProcessor<E, C> dataProcessor, C processorContext, double hedgingPercentile, ContextSnapshot cs)
+            throws Exception {
+        var latencyTracker = dataProcessorToLatencyTrackerMap.computeIfAbsent(dataProcessor, key -> new DataProcessorLatencyTracker());
+        var hedgingDelayNanos = latencyTracker.getPercentileNanos(hedgingPercentile);
+        if (hedgingDelayNanos < 0) {
+            // not enough observations yet to tell a slow invocation from a regular one
+            var startNanos = System.nanoTime();
+            var entityUpdater = dataProcessor.process(processorContext);
+            latencyTracker.record(System.nanoTime() - startNanos);
+            return entityUpdater;
+        }
+        var outcome = new CompletableFuture<CheckedConsumer<E>>();
+        var primaryInvocation = new HedgedInvocation<>(dataProcessor, processorContext, latencyTracker, outcome, cs);
+        var hedgedInvocation = new HedgedInvocation<>(dataProcessor, processorContext, latencyTracker, outcome, cs);
+        primaryInvocation.competitor = hedgedInvocation;
+        hedgedInvocation.competitor = primaryInvocation;
+        var hedgingExecutor = resolveHedgingExecutor();
+        // both invocations run elsewhere: the current thread only waits for the first outcome. so a slow invocation
+        // ignoring its interrupt - e.g. in a blocking socket read - can not hold back the caller
+        hedgingExecutor.execute(primaryInvocation);
+        CompletableFuture.delayedExecutor(hedgingDelayNanos, TimeUnit.NANOSECONDS, hedgingExecutor)
+                .execute(hedgedInvocation);
+        try {
+            return outcome.get();
+        } catch (ExecutionException e) {
+            throw sneakyThrowUtil.sneakyThrow(e.getCause());
+        } catch (InterruptedException e) {
+            // e.g. the deadline of the stage task expired
+            primaryInvocation.cancel();
+            hedgedInvocation.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The executor of hedged invocations: a new virtual thread in virtual thread mode, otherwise the pool of the current worker
+     */
+    protected Executor resolveHedgingExecutor() {
+        var virtualThreadExecutor = resolveVirtualThreadExecutor();
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor;
+        }
+        var fjp = ForkJoinTask.getPool();
+        if (fjp == null) {
+            fjp = forkJoinPoolGuard.currentForkJoinPool();
+        }
+        return fjp != null ? fjp : forkJoinPoolGuard.getDefaultForkJoinPool();
+    }
+
+    protected <E, C extends DataProcessorContext> InvocationKey createInvocationKey(DataProcessor<E, C> dataProcessor, C processorContext, E entity, Collection<DataScope> dataScopes) {
+        var domainRef = processorContext.extractDomainRef(entity);
+        if (domainRef == null) {
+            // without identity there is nothing we could share
+            return null;
+        }
+        return new InvocationKey(dataProcessor, domainRef, dataScopes);
+    }
+
+    /**
+     * Executes the given data processor unless there is a cached entity updater for the given key or - in case of coalescing - an equivalent execution is already in flight
+     *
+     * @param <E>
+     * @param <C>
+     * @param dataProcessor
+     * @param processorContext
+     * @param invocationKey
+     * @param coalescing
+     * @param timeToLive
+     *            The time to live of the result. Null if the result shall not be cached
+     * @return
+     * @throws Exception
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> CheckedConsumer<E> processShared(DataProcessor<E, C> dataProcessor, C processorContext, InvocationKey invocationKey, boolean coalescing,
+            Duration timeToLive) throws Exception {
+        if (timeToLive == null) {
+            return processCoalesced(dataProcessor, processorContext, invocationKey);
+        }
+        var resultCache = getResultCache();
+        var cachedEntityUpdater = resultCache.get(invocationKey);
+        if (cachedEntityUpdater != null) {
+            return cachedEntityUpdater != NO_ENTITY_UPDATE ? (CheckedConsumer<E>) cachedEntityUpdater : null;
+        }
+        var entityUpdater = coalescing ? processCoalesced(dataProcessor, processorContext, invocationKey) : dataProcessor.process(processorContext);
+        resultCache.put(invocationKey, entityUpdater != null ? entityUpdater : NO_ENTITY_UPDATE, timeToLive);
+        return entityUpdater;
+    }
+
+    /**
+     * Executes the given data processor unless an equivalent execution is already in flight. In that case the current thread waits for the entity updater of the in-flight execution and returns it -
+     * so the entity updater is applied to the entity of each caller.<br>
+     * <br>
+     * A nested call issued by the in-flight execution itself - even from a forked thread - executes the data processor on its own as the in-flight execution waits for it.
+     *
+     * @param <E>
+     * @param <C>
+     * @param dataProcessor
+     * @param processorContext
+     * @param invocationKey
+     * @return
+     * @throws Exception
+     *             The failure of the own or of the shared execution
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> CheckedConsumer<E> processCoalesced(DataProcessor<E, C> dataProcessor, C processorContext, InvocationKey invocationKey) throws Exception {
+        var parentInFlightProcess = inFlightProcessTL.get();
+        var inFlightProcess = new InFlightProcess(parentInFlightProcess);
+        var existingInFlightProcess = inFlightProcessMap.putIfAbsent(invocationKey, inFlightProcess);
+        if (existingInFlightProcess != null) {
+            if (existingInFlightProcess.isAncestorOf(parentInFlightProcess)) {
+                // a nested call of the in-flight execution must not wait for it
+                return dataProcessor.process(processorContext);
+            }
+            try {
+                return existingInFlightProcess.get();
+            } catch (ExecutionException e) {
+                throw sneakyThrowUtil.sneakyThrow(e.getCause());
+            }
+        }
+        inFlightProcessTL.set(inFlightProcess);
+        try {
+            var entityUpdater = dataProcessor.process(processorContext);
+            inFlightProcess.complete(entityUpdater);
+            return entityUpdater;
+        } catch (Throwable e) {
+            inFlightProcess.completeExceptionally(e);
+            throw e;
+        } finally {
+            if (parentInFlightProcess != null) {
+                inFlightProcessTL.set(parentInFlightProcess);
+            } else {
+                inFlightProcessTL.remove();
+            }
+            inFlightProcessMap.remove(invocationKey, inFlightProcess);
+        }
+    }
+
+    /**
+     * Returns a callable that executes the specified batch processor for all entities of the given chunk. The callable returns the entity updater of each entity at the same index as the entity
+     * within the chunk.
+     *
+     * @param <E>
+     *            The processed entity type
+     * @param <C>
+     *            The processor context type
+     * @param batchDataProcessor
+     * @param chunk
+     *            The entities to process together with their processor contexts
+     * @param executionState
+     * @param cs
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected <E, C extends DataProcessorContext> Callable<List<CheckedConsumer<E>>> asyncProcessBatch(BatchDataProcessor<E, C> batchDataProcessor, List<RunnableSupplier<E, C>> chunk,
+            ExecutionState<E, C> executionState, ContextSnapshot cs) {
+        var processorContexts = new ArrayList<C>(chunk.size());
+        chunk.forEach(runnableSupplier -> processorContexts.add(runnableSupplier.getDataProcessorContext()));
+
+        // all items of a chunk belong to the same data processor and therefore share its exception handler
+        var exceptionHandler = chunk.get(0)
+                .getExceptionHandler();
+        return () -> {
+            List<CheckedConsumer<E>> entityUpdaters;
+            var revert = cs.apply();
+            try {
+                entityUpdaters = batchDataProcessor.processBatch(processorContexts);
+            } catch (Throwable e) {
+                if (exceptionHandler == null) {
+                    throw e;
+                }
+                entityUpdaters = new ArrayList<>(processorContexts.size());
+                for (var processorContext : processorContexts) {
+                    entityUpdaters.add(exceptionHandler.handleProcessException(batchDataProcessor, processorContext, e));
+                }
+            } finally {
+                revert.revert();
+            }
+            if (entityUpdaters == null) {
+                return null;
+            }
+            if (entityUpdaters.size() != chunk.size()) {
+                throw new IllegalStateException("Batch data processor '" + batchDataProcessor.getClass()
+                        .getName() + "' returned " + entityUpdaters.size() + " entity updaters for " + chunk.size() + " entities");
+            }
+            return entityUpdaters;
+        };
+    }
+
+    /**
+     * Evaluates whether the given data processor has already been applied to the given entity for the given data scopes. As a side effect the data scopes are flagged as used for the entity - so the
+     * caller is expected to execute the data processor if this method returns false.
+     *
+     * @param <E>
+     * @param <C>
+     * @param dataProcessor
+     * @param processorContext
+     * @param entity
+     * @param dataScopes
+     * @param dataScopeBits
+     *            The same data scopes as bitset
+     * @param executionState
+     * @return true if the execution of the data processor shall be skipped for the entity
+     */
+    protected <E, C extends DataProcessorContext> boolean isDataScopeAlreadyProcessed(DataProcessor<E, C> dataProcessor, C processorContext, E entity, Collection<DataScope> dataScopes,
+            long[] dataScopeBits, ExecutionState<E, C> executionState) {
+        var usedDataScopeTracker = executionState.getUsedDataScopeTracker();
+        if (usedDataScopeTracker == null) {
+            return false;
+        }
+        var domainRef = processorContext.extractDomainRef(entity);
+        if (domainRef == null) {
+            return false;
+        }
+        if (usedDataScopeTracker.markUsed(domainRef, dataProcessor, dataScopes, dataScopeBits)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Skipped data processor '{}' for entity '{}'!", dataProcessor.getClass()
+                        .getSimpleName(), domainRef);
+            }
+            notifyDataProcessorSkipped(dataProcessor, entity, executionState);
+            return true;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Calling data processor '{}' for entity '{}'...", dataProcessor.getClass()
+                    .getSimpleName(), domainRef);
+        }
+        return false;
+    }
+
     @Override
-    public <E> StateRevert registerDataProcessor(DataProcessor<E, ?> dataProcessor, Class<? extends E> entityType, DataScope dataScope) {
+    public StateRevert registerAll(Consumer<StateRevertChain> registrations) {
         writeLock.lock();
         try {
-            ConfigurationState newState = new ConfigurationState(state);
-            var scopeToDataProcessorMap = newState.getEntityTypeToScopeToDataProcessorMap()
-                    .computeIfAbsent(entityType, currentEntityType -> new ConcurrentHashMap<>());
-            ListenersMapListAdapter.registerListener(dataProcessor, dataScope, (Map) scopeToDataProcessorMap);
+            if (pendingState != null) {
+                // nested batch: simply part of the outer one
+                return DefaultStateRevert.chain(registrations);
+            }
+            pendingState = new ConfigurationState(state);
+            try {
+                var revert = DefaultStateRevert.chain(registrations);
+                pendingState.validateDependencies();
+                this.state = pendingState;
+                return () -> registerAll(chain -> revert.revert());
+            } finally {
+                pendingState = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-            ListenersMapListAdapter.registerListener(dataScope, dataProcessor, newState.getDataProcessorToDataScopesMap());
+    /**
+     * Applies the given modification to a copy of the current configuration state and publishes the copy afterwards. Within a {@link #registerAll(Consumer)} batch the modification is applied to the
+     * pending configuration state of the batch instead
+     *
+     * @param updater
+     */
+    protected void updateState(Consumer<ConfigurationState> updater) {
+        updateState(updater, false);
+    }
+
+    /**
+     * @param updater
+     * @param dependenciesChanged
+     *            Whether the dependencies between data processors need to be validated before the new configuration state is published
+     * @see #updateState(Consumer)
+     */
+    protected void updateState(Consumer<ConfigurationState> updater, boolean dependenciesChanged) {
+        writeLock.lock();
+        try {
+            if (pendingState != null) {
+                // validated once when the batch finishes
+                updater.accept(pendingState);
+                return;
+            }
+            ConfigurationState newState = new ConfigurationState(state);
+            updater.accept(newState);
+            if (dependenciesChanged) {
+                newState.validateDependencies();
+            }
             this.state = newState;
         } finally {
             writeLock.unlock();
         }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    @Override
+    public <E> StateRevert registerDataProcessor(DataProcessor<E, ?> dataProcessor, Class<? extends E> entityType, DataScope dataScope) {
+        updateState(newState -> {
+            // the nested map is shared with the original configuration state
+            var scopeToDataProcessorMap = new ConcurrentHashMap<>(newState.getEntityTypeToScopeToDataProcessorMap()
+                    .getOrDefault(entityType, Map.of()));
+            ListenersMapListAdapter.registerListener(dataProcessor, dataScope, (Map) scopeToDataProcessorMap);
+            newState.getEntityTypeToScopeToDataProcessorMap()
+                    .put(entityType, scopeToDataProcessorMap);
+
+            ListenersMapListAdapter.registerListener(dataScope, dataProcessor, newState.getDataProcessorToDataScopesMap());
+        }, true);
         return () -> unregisterDataProcessor(dataProcessor, entityType, dataScope);
     }
 
     @SuppressWarnings({ "rawtypes", "unchecked" })
     protected <E> void unregisterDataProcessor(DataProcessor<E, ?> dataProcessor, Class<? extends E> entityType, DataScope dataScope) {
-        writeLock.lock();
-        try {
-            ConfigurationState newState = new ConfigurationState(state);
+        updateState(newState -> {
             ListenersMapListAdapter.unregisterListener(dataScope, dataProcessor, newState.getDataProcessorToDataScopesMap());
 
-            var scopeToDataProcessorMap = newState.getEntityTypeToScopeToDataProcessorMap()
-                    .get(entityType);
+            // the nested map is shared with the original configuration state
+            var scopeToDataProcessorMap = new ConcurrentHashMap<>(newState.getEntityTypeToScopeToDataProcessorMap()
+                    .getOrDefault(entityType, Map.of()));
             ListenersMapListAdapter.unregisterListener(dataProcessor, dataScope, (Map) scopeToDataProcessorMap);
 
             if (scopeToDataProcessorMap.isEmpty()) {
                 newState.getEntityTypeToScopeToDataProcessorMap()
                         .remove(entityType);
+            } else {
+                newState.getEntityTypeToScopeToDataProcessorMap()
+                        .put(entityType, scopeToDataProcessorMap);
             }
-            this.state = newState;
-        } finally {
-            writeLock.unlock();
-        }
+            if (!newState.getDataProcessorToDataScopesMap()
+                    .containsKey(dataProcessor)) {
+                // the data processor is gone for good: do not hold on to it via its learned cost estimate or its observed latencies
+                dataProcessorToObservedNanosMap.remove(dataProcessor);
+                dataProcessorToLatencyTrackerMap.remove(dataProcessor);
+            }
+        });
     }
 
     @Override
     public <E> StateRevert registerDataProcessorDependency(DataProcessor<E, ?> dataProcessor, DataScope requiredDataScope) {
-        writeLock.lock();
-        try {
-            ConfigurationState newState = new ConfigurationState(state);
+        updateState(newState -> {
             ListenersMapListAdapter.registerListener(requiredDataScope, dataProcessor, newState.getDataProcessorToRequiredDataScopesMap());
-            this.state = newState;
-        } finally {
-            writeLock.unlock();
-        }
+        }, true);
         return () -> unregisterDataProcessorDependency(dataProcessor, requiredDataScope);
     }
 
     protected <E> void unregisterDataProcessorDependency(DataProcessor<E, ?> dataProcessor, DataScope requiredDataScope) {
-        writeLock.lock();
-        try {
-            ConfigurationState newState = new ConfigurationState(state);
+        updateState(newState -> {
             ListenersMapListAdapter.unregisterListener(requiredDataScope, dataProcessor, newState.getDataProcessorToRequiredDataScopesMap());
-            this.state = newState;
-        } finally {
-            writeLock.unlock();
-        }
+        });
     }
 
     @Override
     public <E> StateRevert registerDataProcessorExceptionHandler(DataProcessor<E, ?> dataProcessor, DataProcessorExceptionHandler exceptionHandler) {
-        writeLock.lock();
-        try {
-            ConfigurationState newState = new ConfigurationState(state);
+        updateState(newState -> {
             ListenersMapListAdapter.registerListener(exceptionHandler, dataProcessor, newState.getDataProcessorToExceptionHandlerMap());
-            this.state = newState;
-        } finally {
-            writeLock.unlock();
-        }
+        });
         return () -> unregisterDataProcessorExceptionHandler(dataProcessor, exceptionHandler);
     }
 
     protected <E> void unregisterDataProcessorExceptionHandler(DataProcessor<E, ?> dataProcessor, DataProcessorExceptionHandler exceptionHandler) {
-        writeLock.lock();
-        try {
-            ConfigurationState newState = new ConfigurationState(state);
+        updateState(newState -> {
             ListenersMapListAdapter.unregisterListener(exceptionHandler, dataProcessor, newState.getDataProcessorToExceptionHandlerMap());
-            this.state = newState;
-        } finally {
-            writeLock.unlock();
+        });
+    }
+
+    @Override
+    public <E> StateRevert registerDataProcessorTimeout(DataProcessor<E, ?> dataProcessor, Duration timeout) {
+        Objects.requireNonNull(timeout, "timeout must be valid");
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeout);
         }
+        updateState(newState -> {
+            ListenersMapListAdapter.registerListener(timeout, dataProcessor, newState.getDataProcessorToTimeoutMap());
+        });
+        return () -> unregisterDataProcessorTimeout(dataProcessor, timeout);
+    }
+
+    protected <E> void unregisterDataProcessorTimeout(DataProcessor<E, ?> dataProcessor, Duration timeout) {
+        updateState(newState -> {
+            ListenersMapListAdapter.unregisterListener(timeout, dataProcessor, newState.getDataProcessorToTimeoutMap());
+        });
+    }
+
+    @Override
+    public <E> StateRevert registerDataProcessorBulkhead(DataProcessor<E, ?> dataProcessor, String bulkheadName, int maxConcurrency) {
+        Objects.requireNonNull(dataProcessor, "dataProcessor must be valid");
+        Objects.requireNonNull(bulkheadName, "bulkheadName must be valid");
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        updateState(newState -> {
+            if (newState.getDataProcessorToBulkheadMap()
+                    .containsKey(dataProcessor)) {
+                throw new IllegalStateException("Bulkhead already registered: " + dataProcessor);
+            }
+            var bulkhead = newState.getNameToBulkheadMap()
+                    .computeIfAbsent(bulkheadName, key -> new DataProcessorBulkhead(key, maxConcurrency));
+            if (bulkhead.getMaxConcurrency() != maxConcurrency) {
+                throw new IllegalStateException(bulkhead + " already registered with a different maxConcurrency: " + maxConcurrency);
+            }
+            newState.getDataProcessorToBulkheadMap()
+                    .put(dataProcessor, bulkhead);
+        });
+        return () -> unregisterDataProcessorBulkhead(dataProcessor);
+    }
+
+    protected <E> void unregisterDataProcessorBulkhead(DataProcessor<E, ?> dataProcessor) {
+        updateState(newState -> {
+            var bulkhead = newState.getDataProcessorToBulkheadMap()
+                    .remove(dataProcessor);
+            if (bulkhead == null) {
+                throw new IllegalStateException("Bulkhead not registered: " + dataProcessor);
+            }
+            if (!newState.getDataProcessorToBulkheadMap()
+                    .containsValue(bulkhead)) {
+                newState.getNameToBulkheadMap()
+                        .remove(bulkhead.getName());
+            }
+        });
+    }
+
+    @Override
+    public <E> StateRevert registerDataProcessorCostEstimate(DataProcessor<E, ?> dataProcessor, Duration costEstimate) {
+        Objects.requireNonNull(costEstimate, "costEstimate must be valid");
+        if (costEstimate.isNegative() || costEstimate.isZero()) {
+            throw new IllegalArgumentException("costEstimate must be positive: " + costEstimate);
+        }
+        updateState(newState -> {
+            ListenersMapListAdapter.registerListener(costEstimate, dataProcessor, newState.getDataProcessorToCostEstimateMap());
+        });
+        return () -> unregisterDataProcessorCostEstimate(dataProcessor, costEstimate);
+    }
+
+    protected <E> void unregisterDataProcessorCostEstimate(DataProcessor<E, ?> dataProcessor, Duration costEstimate) {
+        updateState(newState -> {
+            ListenersMapListAdapter.unregisterListener(costEstimate, dataProcessor, newState.getDataProcessorToCostEstimateMap());
+        });
+    }
+
+    @Override
+    public <E> StateRevert registerDataProcessorHedging(DataProcessor<E, ?> dataProcessor, double percentile) {
+        if (!(percentile > 0 && percentile < 100)) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100 (exclusive): " + percentile);
+        }
+        Double hedgingPercentile = percentile;
+        updateState(newState -> {
+            ListenersMapListAdapter.registerListener(hedgingPercentile, dataProcessor, newState.getDataProcessorToHedgingPercentileMap());
+        });
+        return () -> unregisterDataProcessorHedging(dataProcessor, hedgingPercentile);
+    }
+
+    protected <E> void unregisterDataProcessorHedging(DataProcessor<E, ?> dataProcessor, Double hedgingPercentile) {
+        updateState(newState -> {
+            ListenersMapListAdapter.unregisterListener(hedgingPercentile, dataProcessor, newState.getDataProcessorToHedgingPercentileMap());
+            if (!newState.getDataProcessorToHedgingPercentileMap()
+                    .containsKey(dataProcessor)) {
+                // no longer hedged: do not hold on to the data processor via its observed latencies
+                dataProcessorToLatencyTrackerMap.remove(dataProcessor);
+            }
+        });
+    }
+
+    @Override
+    public StateRevert registerDataProcessorExecutionListener(DataProcessorExecutionListener executionListener) {
+        Objects.requireNonNull(executionListener, "executionListener must be valid");
+        updateState(newState -> newState.addExecutionListener(executionListener));
+        return () -> unregisterDataProcessorExecutionListener(executionListener);
+    }
+
+    protected void unregisterDataProcessorExecutionListener(DataProcessorExecutionListener executionListener) {
+        updateState(newState -> newState.removeExecutionListener(executionListener));
+    }
+
+    @Override
+    public <E> StateRevert registerDataProcessorResultCaching(DataProcessor<E, ?> dataProcessor, Duration timeToLive) {
+        Objects.requireNonNull(timeToLive, "timeToLive must be valid");
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("timeToLive must be positive: " + timeToLive);
+        }
+        updateState(newState -> {
+            ListenersMapListAdapter.registerListener(timeToLive, dataProcessor, newState.getDataProcessorToTimeToLiveMap());
+        });
+        return () -> unregisterDataProcessorResultCaching(dataProcessor, timeToLive);
+    }
+
+    protected <E> void unregisterDataProcessorResultCaching(DataProcessor<E, ?> dataProcessor, Duration timeToLive) {
+        updateState(newState -> {
+            ListenersMapListAdapter.unregisterListener(timeToLive, dataProcessor, newState.getDataProcessorToTimeToLiveMap());
+        });
+    }
+
+    @Override
+    public <E> StateRevert registerDataProcessorCoalescing(DataProcessor<E, ?> dataProcessor) {
+        Objects.requireNonNull(dataProcessor, "dataProcessor must be valid");
+        updateState(newState -> {
+            if (!newState.getCoalescingDataProcessors()
+                    .add(dataProcessor)) {
+                throw new IllegalStateException("Coalescing already registered: " + dataProcessor);
+            }
+        });
+        return () -> unregisterDataProcessorCoalescing(dataProcessor);
+    }
+
+    protected <E> void unregisterDataProcessorCoalescing(DataProcessor<E, ?> dataProcessor) {
+        updateState(newState -> {
+            if (!newState.getCoalescingDataProcessors()
+                    .remove(dataProcessor)) {
+                throw new IllegalStateException("Coalescing not registered: " + dataProcessor);
+            }
+        });
+    }
+
+    @Override
+    public <E> StateRevert registerDataProcessorConcurrentEntityUpdate(DataProcessor<E, ?> dataProcessor) {
+        Objects.requireNonNull(dataProcessor, "dataProcessor must be valid");
+        updateState(newState -> {
+            if (!newState.getConcurrentEntityUpdateDataProcessors()
+                    .add(dataProcessor)) {
+                throw new IllegalStateException("Concurrent entity update already registered: " + dataProcessor);
+            }
+        });
+        return () -> unregisterDataProcessorConcurrentEntityUpdate(dataProcessor);
+    }
+
+    protected <E> void unregisterDataProcessorConcurrentEntityUpdate(DataProcessor<E, ?> dataProcessor) {
+        updateState(newState -> {
+            if (!newState.getConcurrentEntityUpdateDataProcessors()
+                    .remove(dataProcessor)) {
+                throw new IllegalStateException("Concurrent entity update not registered: " + dataProcessor);
+            }
+        });
     }
 }
@@ -0,0 +1,46 @@
+package org.threadlys.streams.impl;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataScope;
+
+import lombok.Value;
+
+/**
+ * Lock-free {@link UsedDataScopeTracker} that keeps a single immutable bitset per domain object and data processor type. Updates are published via compare-and-set so there are neither locks nor
+ * nested collections per domain object.
+ */
+public class BitsetUsedDataScopeTracker implements UsedDataScopeTracker {
+    @Value
+    protected static class UsedDataScopeKey {
+        Object domainRef;
+
+        Class<?> dataProcessorType;
+    }
+
+    protected final Map<UsedDataScopeKey, long[]> keyToUsedDataScopeBitsMap = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean markUsed(Object domainRef, DataProcessor<?, ?> dataProcessor, Collection<DataScope> dataScopes, long[] dataScopeBits) {
+        var key = new UsedDataScopeKey(domainRef, dataProcessor.getClass());
+        var usedDataScopeBits = keyToUsedDataScopeBitsMap.putIfAbsent(key, dataScopeBits);
+        if (usedDataScopeBits == null) {
+            return false;
+        }
+        while (true) {
+            var missingDataScopeBits = DataScopeRegistry.andNot(dataScopeBits, usedDataScopeBits);
+            if (DataScopeRegistry.isEmpty(missingDataScopeBits)) {
+                // nothing to update
+                return DataScopeRegistry.intersects(usedDataScopeBits, dataScopeBits);
+            }
+            if (keyToUsedDataScopeBitsMap.replace(key, usedDataScopeBits, DataScopeRegistry.or(usedDataScopeBits, missingDataScopeBits))) {
+                return DataScopeRegistry.intersects(usedDataScopeBits, dataScopeBits);
+            }
+            // a concurrent update won. evaluate again on its result
+            usedDataScopeBits = keyToUsedDataScopeBitsMap.get(key);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.threadlys.streams.impl;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.threadlys.streams.DataProcessorExtendable;
+
+import lombok.Getter;
+
+/**
+ * Limits the number of concurrently running tasks of all data processors sharing the same bulkhead - see
+ * {@link DataProcessorExtendable#registerDataProcessorBulkhead(org.threadlys.streams.DataProcessor, String, int)}. Tasks exceeding the limit are queued instead of being submitted - so they never
+ * occupy a worker while waiting for admission. As soon as a running task finishes the next queued task is submitted to the executor it was meant for.
+ */
+public class DataProcessorBulkhead {
+    @Getter
+    protected final String name;
+
+    @Getter
+    protected final int maxConcurrency;
+
+    protected final AtomicInteger runningCount = new AtomicInteger();
+
+    protected final Queue<Runnable> pendingSubmissions = new ConcurrentLinkedQueue<>();
+
+    public DataProcessorBulkhead(String name, int maxConcurrency) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("maxConcurrency must be positive: " + maxConcurrency);
+        }
+        this.name = name;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Submits the given task to the given executor as soon as the bulkhead admits it
+     *
+     * @param task
+     * @param executor
+     */
+    public void execute(Runnable task, Executor executor) {
+        pendingSubmissions.add(() -> executor.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                runningCount.decrementAndGet();
+                admitPendingSubmissions();
+            }
+        }));
+        admitPendingSubmissions();
+    }
+
+    /**
+     * @return The number of currently admitted tasks
+     */
+    public int getRunningCount() {
+        return runningCount.get();
+    }
+
+    protected void admitPendingSubmissions() {
+        while (!pendingSubmissions.isEmpty()) {
+            var currentRunningCount = runningCount.get();
+            if (currentRunningCount >= maxConcurrency) {
+                // a running task re-evaluates the queue when it finishes
+                return;
+            }
+            if (!runningCount.compareAndSet(currentRunningCount, currentRunningCount + 1)) {
+                continue;
+            }
+            var pendingSubmission = pendingSubmissions.poll();
+            if (pendingSubmission == null) {
+                // another thread admitted it already. the loop re-evaluates the queue after giving the permit back
+                runningCount.decrementAndGet();
+                continue;
+            }
+            try {
+                pendingSubmission.run();
+            } catch (RuntimeException e) {
+                // e.g. a rejected submission
+                runningCount.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead '" + name + "' (" + runningCount.get() + "/" + maxConcurrency + ")";
+    }
+}
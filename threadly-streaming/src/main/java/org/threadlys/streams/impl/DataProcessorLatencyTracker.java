@@ -0,0 +1,65 @@
+package org.threadlys.streams.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the most recent observed latencies of a single data processor in a fixed size ring buffer and derives percentiles from them. It is used to decide when a hedged invocation of a slow data
+ * processor is launched - see {@link org.threadlys.streams.DataProcessorExtendable#registerDataProcessorHedging(org.threadlys.streams.DataProcessor, double)}.<br>
+ * <br>
+ * Recording is lock-free. The percentiles are recomputed lazily from a snapshot of the ring buffer after a number of new observations - so concurrent recordings may be missed by a single
+ * computation, which is irrelevant for the purpose of a hedging delay.
+ */
+public class DataProcessorLatencyTracker {
+    /**
+     * The number of observations before any percentile is reported. Below that a single outlier would dominate the percentile
+     */
+    public static final int MIN_OBSERVATION_COUNT = 20;
+
+    private static final int CAPACITY = 128;
+
+    private static final int RECOMPUTE_INTERVAL = 16;
+
+    protected final AtomicLongArray latencyNanos = new AtomicLongArray(CAPACITY);
+
+    protected final AtomicLong observationCount = new AtomicLong();
+
+    protected volatile long[] sortedLatencyNanos;
+
+    protected volatile long sortedAtObservationCount;
+
+    /**
+     * @param latencyNanos
+     *            The observed latency of a finished invocation
+     */
+    public void record(long latencyNanos) {
+        var observationIndex = observationCount.getAndIncrement();
+        this.latencyNanos.set((int) (observationIndex % CAPACITY), Math.max(latencyNanos, 1));
+    }
+
+    /**
+     * @param percentile
+     *            Between 0 (exclusive) and 100 (exclusive)
+     * @return The latency in nanoseconds below which the given percentage of the recent observations lies. -1 if there are not enough observations yet
+     */
+    public long getPercentileNanos(double percentile) {
+        var currentObservationCount = observationCount.get();
+        if (currentObservationCount < MIN_OBSERVATION_COUNT) {
+            return -1;
+        }
+        var sortedLatencyNanos = this.sortedLatencyNanos;
+        if (sortedLatencyNanos == null || currentObservationCount - sortedAtObservationCount >= RECOMPUTE_INTERVAL) {
+            var size = (int) Math.min(currentObservationCount, CAPACITY);
+            sortedLatencyNanos = new long[size];
+            for (int a = size; a-- > 0;) {
+                sortedLatencyNanos[a] = latencyNanos.get(a);
+            }
+            Arrays.sort(sortedLatencyNanos);
+            this.sortedLatencyNanos = sortedLatencyNanos;
+            sortedAtObservationCount = currentObservationCount;
+        }
+        var index = (int) Math.ceil(percentile / 100 * sortedLatencyNanos.length) - 1;
+        return sortedLatencyNanos[Math.max(0, Math.min(index, sortedLatencyNanos.length - 1))];
+    }
+}
@@ -0,0 +1,129 @@
+package org.threadlys.streams.impl;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataProcessorExceptionHandler;
+import org.threadlys.streams.DataProcessorPlan;
+import org.threadlys.streams.DataScope;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Array based implementation of a {@link DataProcessorPlan}. All data processors of the plan are addressed by their index. The index order is compatible with the stage order - so a data processor
+ * always has a higher index than any of the data processors it depends on.
+ *
+ * @param <E>
+ *            The entity type of the plan
+ */
+@SuppressWarnings("rawtypes")
+@RequiredArgsConstructor
+public class DataProcessorPlanImpl<E> implements DataProcessorPlan<E> {
+    /**
+     * The configuration this plan has been compiled from
+     */
+    @Getter
+    protected final AsyncDataProcessorImpl.ConfigurationState configurationState;
+
+    @Getter
+    protected final Class<E> entityType;
+
+    @Getter
+    protected final Set<DataScope> dataScopes;
+
+    /**
+     * The applicable data processors by their index
+     */
+    @Getter
+    protected final DataProcessor[] dataProcessors;
+
+    /**
+     * The data scopes served by the data processor with the same index
+     */
+    @Getter
+    protected final Collection<DataScope>[] dataScopesOfDataProcessors;
+
+    /**
+     * The data scopes served by the data processor with the same index as bitset of the data scope registry of the configuration
+     */
+    @Getter
+    protected final long[][] dataScopeBitsOfDataProcessors;
+
+    /**
+     * The effective exception handler of the data processor with the same index. May contain null entries.
+     */
+    @Getter
+    protected final DataProcessorExceptionHandler[] exceptionHandlers;
+
+    /**
+     * The registered timeout in nanoseconds of the data processor with the same index. A value of zero means that there is no timeout
+     */
+    @Getter
+    protected final long[] timeoutNanosOfDataProcessors;
+
+    /**
+     * Whether concurrent executions of the data processor with the same index for the same domain ref and data scopes share a single invocation
+     */
+    @Getter
+    protected final boolean[] coalescingOfDataProcessors;
+
+    /**
+     * The time to live of cached results of the data processor with the same index. May contain null entries for data processors without result caching
+     */
+    @Getter
+    protected final Duration[] timeToLiveOfDataProcessors;
+
+    /**
+     * Whether the entity updater of the data processor with the same index is applied directly on the worker
+     */
+    @Getter
+    protected final boolean[] concurrentEntityUpdateOfDataProcessors;
+
+    /**
+     * The registered cost estimate in nanoseconds of the data processor with the same index. A value of zero means that there is no registered cost estimate
+     */
+    @Getter
+    protected final long[] costEstimateNanosOfDataProcessors;
+
+    /**
+     * The bulkhead of the data processor with the same index. May contain null entries for data processors without a bulkhead
+     */
+    @Getter
+    protected final DataProcessorBulkhead[] bulkheadsOfDataProcessors;
+
+    /**
+     * The hedging percentile of the data processor with the same index. A value of zero means that the data processor is not hedged
+     */
+    @Getter
+    protected final double[] hedgingPercentileOfDataProcessors;
+
+    /**
+     * The data processor indices per stage
+     */
+    @Getter
+    protected final int[][] stages;
+
+    /**
+     * The data processor indices each data processor with the same index directly depends on
+     */
+    @Getter
+    protected final int[][] predecessors;
+
+    @Override
+    public int getStageCount() {
+        return stages.length;
+    }
+
+    @Override
+    public int getDataProcessorCount() {
+        return dataProcessors.length;
+    }
+
+    @Override
+    public String toString() {
+        return "DataProcessorPlan[" + entityType.getName() + ", " + dataScopes + ", " + dataProcessors.length + " data processors in " + stages.length + " stages]";
+    }
+}
@@ -0,0 +1,196 @@
+package org.threadlys.streams.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.threadlys.streams.DataScope;
+
+/**
+ * Interns {@link DataScope} instances by assigning each of them a stable ordinal. This allows to represent sets of data scopes as <code>long[]</code> bitsets so that set operations like
+ * intersections and unions are evaluated word by word instead of by comparing individual data scope instances.<br>
+ * <br>
+ * Bitsets handled by this class are never modified in place: all operations return either one of their arguments or a new array. A bitset may be shorter than the current amount of registered data
+ * scopes - missing words are treated as zero.
+ */
+@SuppressWarnings("checkstyle:MagicNumber")
+public class DataScopeRegistry {
+    public static final long[] EMPTY_BITS = new long[0];
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    public static boolean isEmpty(long[] bits) {
+        for (var word : bits) {
+            if (word != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean contains(long[] bits, int ordinal) {
+        var wordIndex = ordinal >>> ADDRESS_BITS_PER_WORD;
+        return wordIndex < bits.length && (bits[wordIndex] & (1L << ordinal)) != 0L;
+    }
+
+    public static boolean intersects(long[] left, long[] right) {
+        for (int a = Math.min(left.length, right.length); a-- > 0;) {
+            if ((left[a] & right[a]) != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static long[] or(long[] left, long[] right) {
+        if (left.length < right.length) {
+            return or(right, left);
+        }
+        if (right.length == 0) {
+            return left;
+        }
+        var result = left.clone();
+        for (int a = right.length; a-- > 0;) {
+            result[a] |= right[a];
+        }
+        return result;
+    }
+
+    /**
+     * Returns all bits of the left bitset that are not contained in the right bitset
+     *
+     * @param left
+     * @param right
+     * @return
+     */
+    public static long[] andNot(long[] left, long[] right) {
+        if (!intersects(left, right)) {
+            return left;
+        }
+        var result = left.clone();
+        for (int a = Math.min(left.length, right.length); a-- > 0;) {
+            result[a] &= ~right[a];
+        }
+        return result;
+    }
+
+    public static int nextSetBit(long[] bits, int fromIndex) {
+        var wordIndex = fromIndex >>> ADDRESS_BITS_PER_WORD;
+        if (wordIndex >= bits.length) {
+            return -1;
+        }
+        var word = bits[wordIndex] & (-1L << fromIndex);
+        while (true) {
+            if (word != 0L) {
+                return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+            }
+            if (++wordIndex == bits.length) {
+                return -1;
+            }
+            word = bits[wordIndex];
+        }
+    }
+
+    protected final Map<DataScope, Integer> dataScopeToOrdinalMap = new ConcurrentHashMap<>();
+
+    protected volatile DataScope[] dataScopes = new DataScope[0];
+
+    /**
+     * Returns the ordinal of the given data scope. Unknown data scopes are registered on-the-fly, so this must only be called with data scopes of registered data processors - never with the data
+     * scopes of a request
+     *
+     * @param dataScope
+     * @return
+     */
+    public int register(DataScope dataScope) {
+        var ordinal = dataScopeToOrdinalMap.get(dataScope);
+        if (ordinal != null) {
+            return ordinal.intValue();
+        }
+        synchronized (this) {
+            ordinal = dataScopeToOrdinalMap.get(dataScope);
+            if (ordinal != null) {
+                return ordinal.intValue();
+            }
+            var newOrdinal = dataScopes.length;
+            var newDataScopes = Arrays.copyOf(dataScopes, newOrdinal + 1);
+            newDataScopes[newOrdinal] = dataScope;
+            // publish the array before the ordinal so that any reader of the ordinal is able to resolve it
+            dataScopes = newDataScopes;
+            dataScopeToOrdinalMap.put(dataScope, newOrdinal);
+            return newOrdinal;
+        }
+    }
+
+    /**
+     * Returns the ordinal of the given data scope without registering it
+     *
+     * @param dataScope
+     * @return The ordinal or -1 if the data scope has never been registered
+     */
+    public int ordinalOf(DataScope dataScope) {
+        var ordinal = dataScopeToOrdinalMap.get(dataScope);
+        return ordinal != null ? ordinal.intValue() : -1;
+    }
+
+    public DataScope dataScopeOf(int ordinal) {
+        return dataScopes[ordinal];
+    }
+
+    /**
+     * Registers the given data scopes and converts them to a bitset. See {@link #register(DataScope)}
+     *
+     * @param dataScopes
+     * @return
+     */
+    public long[] registerAll(Iterable<?> dataScopes) {
+        if (dataScopes == null) {
+            return EMPTY_BITS;
+        }
+        var bits = EMPTY_BITS;
+        for (var dataScope : dataScopes) {
+            bits = set(bits, register((DataScope) dataScope));
+        }
+        return bits;
+    }
+
+    /**
+     * Converts the given data scopes to a bitset. Data scopes that have never been registered are ignored: no data processor provides or requires them, so they can not contribute to any set
+     * operation. Nested collections of data scopes are not supported
+     *
+     * @param dataScopes
+     * @return
+     */
+    public long[] toBits(Iterable<?> dataScopes) {
+        if (dataScopes == null) {
+            return EMPTY_BITS;
+        }
+        var bits = EMPTY_BITS;
+        for (var dataScope : dataScopes) {
+            var ordinal = ordinalOf((DataScope) dataScope);
+            if (ordinal >= 0) {
+                bits = set(bits, ordinal);
+            }
+        }
+        return bits;
+    }
+
+    protected long[] set(long[] bits, int ordinal) {
+        var wordIndex = ordinal >>> ADDRESS_BITS_PER_WORD;
+        if (wordIndex >= bits.length) {
+            bits = Arrays.copyOf(bits, wordIndex + 1);
+        }
+        bits[wordIndex] |= 1L << ordinal;
+        return bits;
+    }
+
+    public List<DataScope> toDataScopes(long[] bits) {
+        var dataScopes = new ArrayList<DataScope>();
+        for (int ordinal = nextSetBit(bits, 0); ordinal >= 0; ordinal = nextSetBit(bits, ordinal + 1)) {
+            dataScopes.add(dataScopeOf(ordinal));
+        }
+        return dataScopes;
+    }
+}
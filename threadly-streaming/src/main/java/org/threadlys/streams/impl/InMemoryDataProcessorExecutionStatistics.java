@@ -0,0 +1,185 @@
+package org.threadlys.streams.impl;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataProcessorExecutionListener;
+import org.threadlys.streams.DataProcessorPlan;
+
+import lombok.Getter;
+
+/**
+ * Default {@link DataProcessorExecutionListener} keeping {@link LatencyHistogram}s and counters in memory for the whole lifetime of the instance. It answers which data processor dominates the latency
+ * of the calls - see {@link #getDataProcessorsByTotalRunTime()}. Register it via {@link org.threadlys.streams.DataProcessorExtendable#registerDataProcessorExecutionListener(DataProcessorExecutionListener)}.
+ */
+public class InMemoryDataProcessorExecutionStatistics implements DataProcessorExecutionListener {
+    /**
+     * The statistics of a single data processor
+     */
+    public static class DataProcessorStatistics {
+        @Getter
+        protected final LatencyHistogram queueWaitTime = new LatencyHistogram();
+
+        @Getter
+        protected final LatencyHistogram runTime = new LatencyHistogram();
+
+        protected final LongAdder processedEntityCount = new LongAdder();
+
+        protected final LongAdder skippedEntityCount = new LongAdder();
+
+        protected final LongAdder failureCount = new LongAdder();
+
+        public long getProcessedEntityCount() {
+            return processedEntityCount.sum();
+        }
+
+        public long getSkippedEntityCount() {
+            return skippedEntityCount.sum();
+        }
+
+        public long getFailureCount() {
+            return failureCount.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "queueWait[" + queueWaitTime + "], run[" + runTime + "], processed=" + getProcessedEntityCount() + ", skipped=" + getSkippedEntityCount() + ", failures=" + getFailureCount();
+        }
+    }
+
+    /**
+     * The statistics of all calls for a single entity type
+     */
+    public static class EntityTypeStatistics {
+        @Getter
+        protected final LatencyHistogram planCompileTime = new LatencyHistogram();
+
+        @Getter
+        protected final LatencyHistogram executionTime = new LatencyHistogram();
+
+        /**
+         * The wall time per stage index. Only filled in {@link org.threadlys.streams.DataProcessorExecutionMode#STAGED} mode
+         */
+        @Getter
+        protected final Map<Integer, LatencyHistogram> stageTimes = new ConcurrentHashMap<>();
+
+        protected final LongAdder entityCount = new LongAdder();
+
+        public long getEntityCount() {
+            return entityCount.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "planCompile[" + planCompileTime + "], execution[" + executionTime + "], entities=" + getEntityCount();
+        }
+    }
+
+    protected final Map<Class<?>, EntityTypeStatistics> entityTypeToStatisticsMap = new ConcurrentHashMap<>();
+
+    protected final Map<DataProcessor<?, ?>, DataProcessorStatistics> dataProcessorToStatisticsMap = new ConcurrentHashMap<>();
+
+    @Override
+    public void planCompiled(DataProcessorPlan<?> plan, long compileNanos) {
+        resolveEntityTypeStatistics(plan.getEntityType()).planCompileTime.record(compileNanos);
+    }
+
+    @Override
+    public void executionFinished(Class<?> entityType, int entityCount, long elapsedNanos) {
+        var statistics = resolveEntityTypeStatistics(entityType);
+        statistics.executionTime.record(elapsedNanos);
+        statistics.entityCount.add(entityCount);
+    }
+
+    @Override
+    public void stageFinished(Class<?> entityType, int stageIndex, int taskCount, long elapsedNanos) {
+        resolveEntityTypeStatistics(entityType).stageTimes.computeIfAbsent(stageIndex, key -> new LatencyHistogram())
+                .record(elapsedNanos);
+    }
+
+    @Override
+    public void dataProcessorExecuted(DataProcessor<?, ?> dataProcessor, int entityCount, long queueWaitNanos, long runNanos, boolean successful) {
+        var statistics = resolveDataProcessorStatistics(dataProcessor);
+        statistics.queueWaitTime.record(queueWaitNanos);
+        statistics.runTime.record(runNanos);
+        statistics.processedEntityCount.add(entityCount);
+        if (!successful) {
+            statistics.failureCount.increment();
+        }
+    }
+
+    @Override
+    public void dataProcessorSkipped(DataProcessor<?, ?> dataProcessor, Object entity) {
+        resolveDataProcessorStatistics(dataProcessor).skippedEntityCount.increment();
+    }
+
+    protected EntityTypeStatistics resolveEntityTypeStatistics(Class<?> entityType) {
+        return entityTypeToStatisticsMap.computeIfAbsent(entityType, key -> new EntityTypeStatistics());
+    }
+
+    protected DataProcessorStatistics resolveDataProcessorStatistics(DataProcessor<?, ?> dataProcessor) {
+        return dataProcessorToStatisticsMap.computeIfAbsent(dataProcessor, key -> new DataProcessorStatistics());
+    }
+
+    /**
+     * @param entityType
+     * @return The statistics of all calls for the given entity type. Null if there was none yet
+     */
+    public EntityTypeStatistics getEntityTypeStatistics(Class<?> entityType) {
+        return entityTypeToStatisticsMap.get(entityType);
+    }
+
+    /**
+     * @param dataProcessor
+     * @return The statistics of the given data processor. Null if it has neither been executed nor skipped yet
+     */
+    public DataProcessorStatistics getDataProcessorStatistics(DataProcessor<?, ?> dataProcessor) {
+        return dataProcessorToStatisticsMap.get(dataProcessor);
+    }
+
+    /**
+     * @return All observed data processors - the one with the highest accumulated run time first
+     */
+    public List<DataProcessor<?, ?>> getDataProcessorsByTotalRunTime() {
+        return dataProcessorToStatisticsMap.entrySet()
+                .stream()//
+                .sorted(Comparator.comparingLong((Map.Entry<DataProcessor<?, ?>, DataProcessorStatistics> entry) -> entry.getValue()
+                        .getRunTime()
+                        .getTotalNanos())
+                        .reversed())//
+                .map(Map.Entry::getKey)//
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Discards all statistics collected so far
+     */
+    public void reset() {
+        entityTypeToStatisticsMap.clear();
+        dataProcessorToStatisticsMap.clear();
+    }
+
+    /**
+     * Writes a human readable summary of all statistics. The data processors are ordered by their accumulated run time
+     *
+     * @param writer
+     * @throws IOException
+     */
+    public void printStatistics(Writer writer) throws IOException {
+        for (var entry : entityTypeToStatisticsMap.entrySet()) {
+            writer.write(entry.getKey()
+                    .getName() + ": " + entry.getValue() + System.lineSeparator());
+        }
+        for (var dataProcessor : getDataProcessorsByTotalRunTime()) {
+            writer.write(dataProcessor + ": " + dataProcessorToStatisticsMap.get(dataProcessor) + System.lineSeparator());
+        }
+        writer.flush();
+    }
+}
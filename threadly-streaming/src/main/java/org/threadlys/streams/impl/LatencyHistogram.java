@@ -0,0 +1,103 @@
+package org.threadlys.streams.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds with logarithmic buckets: each power of two is split into four sub buckets, so a reported percentile is at most 25% above the actual value. The
+ * memory footprint is fixed regardless of the number of recorded values.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    protected final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+
+    protected final LongAdder count = new LongAdder();
+
+    protected final LongAdder totalNanos = new LongAdder();
+
+    protected final AtomicLong maxNanos = new AtomicLong();
+
+    protected static int bucketIndex(long nanos) {
+        if (nanos < SUB_BUCKET_COUNT) {
+            return (int) nanos;
+        }
+        var exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        var subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    protected static long bucketUpperBound(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKET_COUNT) {
+            return bucketIndex;
+        }
+        var shift = bucketIndex / SUB_BUCKET_COUNT - 1;
+        var lowerBound = (long) (SUB_BUCKET_COUNT + bucketIndex % SUB_BUCKET_COUNT) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    /**
+     * @param nanos
+     *            Negative values are recorded as zero
+     */
+    public void record(long nanos) {
+        nanos = Math.max(nanos, 0);
+        bucketCounts.incrementAndGet(bucketIndex(nanos));
+        count.increment();
+        totalNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public long getMeanNanos() {
+        var currentCount = getCount();
+        return currentCount > 0 ? getTotalNanos() / currentCount : 0;
+    }
+
+    /**
+     * @param percentile
+     *            Between 0 (exclusive) and 100 (inclusive)
+     * @return The upper bound of the bucket containing the given percentile of all recorded values. 0 if nothing has been recorded yet
+     */
+    public long getPercentileNanos(double percentile) {
+        var bucketCounts = new long[BUCKET_COUNT];
+        long currentCount = 0;
+        for (int a = 0; a < BUCKET_COUNT; a++) {
+            bucketCounts[a] = this.bucketCounts.get(a);
+            currentCount += bucketCounts[a];
+        }
+        if (currentCount == 0) {
+            return 0;
+        }
+        var rank = Math.max(1, (long) Math.ceil(percentile / 100 * currentCount));
+        long cumulatedCount = 0;
+        for (int a = 0; a < BUCKET_COUNT; a++) {
+            cumulatedCount += bucketCounts[a];
+            if (cumulatedCount >= rank) {
+                return Math.min(bucketUpperBound(a), getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + ", mean=" + getMeanNanos() + "ns, p50=" + getPercentileNanos(50) + "ns, p99=" + getPercentileNanos(99) + "ns, max=" + getMaxNanos() + "ns";
+    }
+}
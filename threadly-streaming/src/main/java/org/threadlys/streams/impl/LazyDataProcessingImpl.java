@@ -0,0 +1,207 @@
+package org.threadlys.streams.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.threadlys.streams.AsyncDataProcessor;
+import org.threadlys.streams.DataProcessorContext;
+import org.threadlys.streams.DataScope;
+import org.threadlys.streams.LazyDataProcessing;
+import org.threadlys.utils.SneakyThrowUtil;
+
+/**
+ * Default {@link LazyDataProcessing} of the engine. Each data scope is processed by the first thread ensuring it. Concurrent threads ensuring the same data scope wait for that execution instead of
+ * starting their own. A failed execution is not remembered - so the data scope is processed again on its next access. This includes the threads that waited for the failed execution: they retry
+ * instead of failing with the exception of another thread.
+ *
+ * @param <E>
+ *            The entity type
+ * @param <C>
+ *            The context type
+ */
+public class LazyDataProcessingImpl<E, C extends DataProcessorContext> implements LazyDataProcessing<E> {
+    protected final AsyncDataProcessor asyncDataProcessor;
+
+    protected final SneakyThrowUtil sneakyThrowUtil;
+
+    protected final Class<E> entityType;
+
+    protected final Collection<?> entityList;
+
+    protected final Set<Object> entities;
+
+    protected final Set<DataScope> dataScopes;
+
+    protected final Function<E, C> contextBuilder;
+
+    protected final Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes;
+
+    /**
+     * The execution of one or more data scopes ensured at once
+     */
+    protected static class Execution extends CompletableFuture<Void> {
+        /**
+         * The thread that ensures the data scopes of this execution
+         */
+        protected final Thread owner = Thread.currentThread();
+    }
+
+    /**
+     * The execution per ensured data scope. Several data scopes ensured at once share the same execution
+     */
+    protected final Map<DataScope, Execution> dataScopeToExecutionMap = new ConcurrentHashMap<>();
+
+    public LazyDataProcessingImpl(AsyncDataProcessor asyncDataProcessor, SneakyThrowUtil sneakyThrowUtil, Class<E> entityType, Collection<?> entityList, Collection<DataScope> dataScopes,
+            Function<E, C> contextBuilder, Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        this.asyncDataProcessor = asyncDataProcessor;
+        this.sneakyThrowUtil = sneakyThrowUtil;
+        this.entityType = entityType;
+        this.entityList = entityList;
+        this.dataScopes = Collections.unmodifiableSet(new LinkedHashSet<>(dataScopes));
+        this.contextBuilder = contextBuilder;
+        // the executions of this handle have to know about each other
+        this.entityToUsedDataScopes = entityToUsedDataScopes != null ? entityToUsedDataScopes : new ConcurrentHashMap<>();
+        entities = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (var entity : entityList) {
+            if (entity != null) {
+                entities.add(entity);
+            }
+        }
+    }
+
+    @Override
+    public void ensureScope(E entity, DataScope dataScope) {
+        if (!entities.contains(entity)) {
+            throw new IllegalArgumentException("Entity is not part of this lazy call: " + entity);
+        }
+        ensureScope(dataScope);
+    }
+
+    @Override
+    public void ensureScope(DataScope dataScope) {
+        var execution = dataScopeToExecutionMap.get(dataScope);
+        if (execution != null && execution.isDone() && !execution.isCompletedExceptionally()) {
+            // fast path for all but the first access
+            return;
+        }
+        if (!dataScopes.contains(dataScope)) {
+            throw new IllegalArgumentException("Data scope is not part of this lazy call: " + dataScope);
+        }
+        ensureScopes(List.of(dataScope));
+    }
+
+    @Override
+    public void ensureAllScopes() {
+        ensureScopes(dataScopes);
+    }
+
+    @Override
+    public Set<DataScope> getPendingDataScopes() {
+        var pendingDataScopes = new LinkedHashSet<>(dataScopes);
+        pendingDataScopes.removeAll(dataScopeToExecutionMap.keySet());
+        return pendingDataScopes;
+    }
+
+    protected void ensureScopes(Collection<DataScope> requiredDataScopes) {
+        var pendingDataScopes = requiredDataScopes;
+        while (pendingDataScopes != null) {
+            pendingDataScopes = tryEnsureScopes(pendingDataScopes);
+        }
+    }
+
+    /**
+     * Processes the given data scopes unless they are already processed or currently being processed by another thread - in which case the current thread waits for that execution
+     *
+     * @param requiredDataScopes
+     * @return The data scopes whose execution by another thread failed and that have to be ensured again. Null if all given data scopes are processed
+     */
+    protected Collection<DataScope> tryEnsureScopes(Collection<DataScope> requiredDataScopes) {
+        var currentThread = Thread.currentThread();
+        for (var dataScope : requiredDataScopes) {
+            var execution = dataScopeToExecutionMap.get(dataScope);
+            if (execution != null && execution.owner == currentThread && !execution.isDone()) {
+                // e.g. a data processor executed on the ensuring thread itself. waiting would never end
+                throw new IllegalStateException("Data scope " + dataScope + " is ensured re-entrantly while it is being processed by the current thread: " + this);
+            }
+        }
+        var ownExecution = new Execution();
+        List<DataScope> ownDataScopes = null;
+        Map<DataScope, Execution> foreignExecutions = null;
+        for (var dataScope : requiredDataScopes) {
+            var execution = dataScopeToExecutionMap.putIfAbsent(dataScope, ownExecution);
+            if (execution == null) {
+                if (ownDataScopes == null) {
+                    ownDataScopes = new ArrayList<>(requiredDataScopes.size());
+                }
+                ownDataScopes.add(dataScope);
+            } else if (!execution.isDone() || execution.isCompletedExceptionally()) {
+                if (foreignExecutions == null) {
+                    foreignExecutions = new LinkedHashMap<>();
+                }
+                foreignExecutions.put(dataScope, execution);
+            }
+        }
+        if (ownDataScopes != null) {
+            try {
+                asyncDataProcessor.processAllEntities(entityType, entityList, ownDataScopes, contextBuilder, entityToUsedDataScopes);
+                ownExecution.complete(null);
+            } catch (Throwable e) {
+                releaseUsedDataScopes(ownDataScopes);
+                for (var dataScope : ownDataScopes) {
+                    dataScopeToExecutionMap.remove(dataScope, ownExecution);
+                }
+                ownExecution.completeExceptionally(e);
+                throw e;
+            }
+        }
+        if (foreignExecutions == null) {
+            return null;
+        }
+        List<DataScope> failedDataScopes = null;
+        for (var entry : foreignExecutions.entrySet()) {
+            try {
+                entry.getValue()
+                        .join();
+            } catch (CompletionException e) {
+                // the failure belongs to the other thread. it already released the data scope so we are free to try it ourselves
+                if (failedDataScopes == null) {
+                    failedDataScopes = new ArrayList<>();
+                }
+                failedDataScopes.add(entry.getKey());
+            }
+        }
+        return failedDataScopes;
+    }
+
+    /**
+     * Forgets that the given data scopes have been used for any entity. Otherwise the next attempt to process them would skip the data processors already invoked by the failed execution
+     *
+     * @param failedDataScopes
+     */
+    protected void releaseUsedDataScopes(Collection<DataScope> failedDataScopes) {
+        // same monitor as the MapUsedDataScopeTracker of the engine
+        synchronized (entityToUsedDataScopes) {
+            for (var processorToUsedDataScopes : entityToUsedDataScopes.values()) {
+                for (var usedDataScopes : processorToUsedDataScopes.values()) {
+                    usedDataScopes.removeAll(failedDataScopes);
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LazyDataProcessing[" + entityType.getName() + ", " + entities.size() + " entities, pending " + getPendingDataScopes() + "]";
+    }
+}
@@ -0,0 +1,70 @@
+package org.threadlys.streams.impl;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.threadlys.streams.CheckedConsumer;
+import org.threadlys.streams.DataProcessorResultCache;
+
+/**
+ * Default {@link DataProcessorResultCache} of the engine. It evicts the least recently used entry as soon as the maximum size is exceeded. Expired entries are evicted lazily on access.
+ */
+public class LruDataProcessorResultCache implements DataProcessorResultCache {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    protected static class CacheEntry {
+        protected final CheckedConsumer<?> entityUpdater;
+
+        protected final long expirationNanos;
+
+        public CacheEntry(CheckedConsumer<?> entityUpdater, long expirationNanos) {
+            this.entityUpdater = entityUpdater;
+            this.expirationNanos = expirationNanos;
+        }
+    }
+
+    protected final Map<Object, CacheEntry> keyToEntryMap;
+
+    @SuppressWarnings("serial")
+    public LruDataProcessorResultCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        keyToEntryMap = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CacheEntry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @Override
+    public synchronized CheckedConsumer<?> get(Object key) {
+        var entry = keyToEntryMap.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expirationNanos - System.nanoTime() <= 0) {
+            keyToEntryMap.remove(key);
+            return null;
+        }
+        return entry.entityUpdater;
+    }
+
+    @Override
+    public synchronized void put(Object key, CheckedConsumer<?> entityUpdater, Duration timeToLive) {
+        keyToEntryMap.put(key, new CacheEntry(entityUpdater, System.nanoTime() + timeToLive.toNanos()));
+    }
+
+    @Override
+    public synchronized void clear() {
+        keyToEntryMap.clear();
+    }
+
+    public synchronized int size() {
+        return keyToEntryMap.size();
+    }
+}
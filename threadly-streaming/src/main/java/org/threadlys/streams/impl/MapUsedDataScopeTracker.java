@@ -0,0 +1,44 @@
+package org.threadlys.streams.impl;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataScope;
+
+/**
+ * {@link UsedDataScopeTracker} on top of a map passed by the caller of the {@link org.threadlys.streams.AsyncDataProcessor}. It keeps the established structure of that map - domain ref to data
+ * processor type name to used data scopes - so that callers are able to share it across calls.<br>
+ * <br>
+ * The caller's map is not required to be thread-safe: all accesses are guarded by the monitor of the given map, so it may be a plain {@link HashMap} even if the data processors are executed on
+ * several worker threads. Callers sharing the map with concurrent calls of their own have to synchronize on it as well.
+ */
+public class MapUsedDataScopeTracker implements UsedDataScopeTracker {
+    protected final Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes;
+
+    public MapUsedDataScopeTracker(Map<Object, Map<Object, Set<DataScope>>> entityToUsedDataScopes) {
+        this.entityToUsedDataScopes = entityToUsedDataScopes;
+    }
+
+    @Override
+    public boolean markUsed(Object domainRef, DataProcessor<?, ?> dataProcessor, Collection<DataScope> dataScopes, long[] dataScopeBits) {
+        var processorType = dataProcessor.getClass()
+                .getName();
+        synchronized (entityToUsedDataScopes) {
+            var processorToUsedDataScopes = entityToUsedDataScopes.computeIfAbsent(domainRef, currentDomainRef -> new HashMap<>());
+            var usedDataScopes = processorToUsedDataScopes.computeIfAbsent(processorType, currentProcessorType -> new HashSet<>());
+            var alreadyUsed = false;
+            for (var dataScope : dataScopes) {
+                if (usedDataScopes.contains(dataScope)) {
+                    alreadyUsed = true;
+                    break;
+                }
+            }
+            usedDataScopes.addAll(dataScopes);
+            return alreadyUsed;
+        }
+    }
+}
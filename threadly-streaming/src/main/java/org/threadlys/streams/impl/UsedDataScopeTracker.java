@@ -0,0 +1,28 @@
+package org.threadlys.streams.impl;
+
+import java.util.Collection;
+
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataScope;
+
+/**
+ * Tracks which data scopes have already been applied by which data processor to which domain object. It allows the engine to skip a data processor for a domain object that is contained several
+ * times in the processed entities - or processed by several calls sharing the same tracker. Implementations have to be thread-safe.
+ */
+public interface UsedDataScopeTracker {
+    /**
+     * Flags the given data scopes as used by the given data processor for the given domain object. The evaluation and the update are atomic: of several concurrent invocations with the same
+     * arguments exactly one returns false.
+     *
+     * @param domainRef
+     *            The identity of the domain object. Never null
+     * @param dataProcessor
+     * @param dataScopes
+     *            The data scopes served by the data processor
+     * @param dataScopeBits
+     *            The same data scopes as bitset of the {@link DataScopeRegistry} of the current configuration
+     * @return true if any of the given data scopes has already been used before - so the data processor can be skipped. Note that this is not restricted to the first of the given data scopes:
+     *         a data processor is skipped as well if only a later one of its data scopes has been flagged before, e.g. by a map shared across calls
+     */
+    boolean markUsed(Object domainRef, DataProcessor<?, ?> dataProcessor, Collection<DataScope> dataScopes, long[] dataScopeBits);
+}
@@ -1,5 +1,6 @@
 package org.threadlys.threading.impl;
 
+import java.lang.reflect.InvocationTargetException;
 import java.time.Instant;
 import java.util.Collection;
 import java.util.List;
@@ -7,6 +8,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.WeakHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
 import java.util.concurrent.ForkJoinWorkerThread;
@@ -110,10 +112,52 @@ public class ForkJoinPoolGuard implements TransferrableThreadLocalProvider, Disp
 
     private StateRevert defaultListenerRevert = DefaultStateRevert.empty();
 
+    private volatile Optional<ExecutorService> virtualThreadExecutor;
+
     @Override
     public void destroy() throws Exception {
         defaultListenerRevert.revert();
         defaultForkJoinPool.ifPresent(ForkJoinPool::shutdownNow);
+        var virtualThreadExecutor = this.virtualThreadExecutor;
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.ifPresent(ExecutorService::shutdownNow);
+        }
+    }
+
+    /**
+     * Provides an executor starting a new virtual thread for each task. Virtual threads are only supported from JDK 21 on - so on older runtimes the result is empty. The executor does not transfer any
+     * thread-local state: its tasks need to apply a {@link ContextSnapshot} themselves
+     *
+     * @return
+     */
+    public Optional<ExecutorService> getVirtualThreadExecutor() {
+        var virtualThreadExecutor = this.virtualThreadExecutor;
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor;
+        }
+        synchronized (semaphore) {
+            virtualThreadExecutor = this.virtualThreadExecutor;
+            if (virtualThreadExecutor != null) {
+                return virtualThreadExecutor;
+            }
+            virtualThreadExecutor = Optional.ofNullable(createVirtualThreadExecutor());
+            this.virtualThreadExecutor = virtualThreadExecutor;
+            return virtualThreadExecutor;
+        }
+    }
+
+    protected ExecutorService createVirtualThreadExecutor() {
+        try {
+            // resolved reflectively as long as we compile against JDK 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (InvocationTargetException | IllegalAccessException e) {
+            // e.g. a preview feature of JDK 19 or 20 which is not enabled
+            log.info("Virtual threads not available: " + e);
+            return null;
+        }
     }
 
     public Optional<DecoratedForkJoinPool> getDefaultForkJoinPoolOptional() {
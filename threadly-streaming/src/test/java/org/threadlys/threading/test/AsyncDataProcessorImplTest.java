@@ -4,12 +4,25 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.threadlys.utils.DefaultStateRevert;
 import org.threadlys.utils.configuration.CommonsUtilsSpringConfig;
@@ -24,13 +37,24 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import org.threadlys.configuration.CommonsThreadingSpringConfig;
+import org.threadlys.threading.test.context.BeanWithThreadLocalProvider;
 import org.threadlys.streams.AsyncDataProcessor;
+import org.threadlys.streams.BatchDataProcessor;
 import org.threadlys.streams.CheckedConsumer;
 import org.threadlys.streams.DataProcessor;
 import org.threadlys.streams.DataProcessorContext;
 import org.threadlys.streams.DataProcessorExceptionHandler;
 import org.threadlys.streams.DataProcessorExtendable;
+import org.threadlys.streams.DataProcessorFailure;
+import org.threadlys.streams.DataProcessorPlan;
+import org.threadlys.streams.DataProcessorTimeoutException;
 import org.threadlys.streams.DataScope;
+import org.threadlys.streams.Either;
+import org.threadlys.streams.LazyDataProcessing;
+import org.threadlys.streams.NonBlockingDataProcessor;
+import org.threadlys.streams.impl.AsyncDataProcessorImpl;
+import org.threadlys.streams.impl.InMemoryDataProcessorExecutionStatistics;
+import org.threadlys.threading.impl.ForkJoinPoolGuard;
 
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
@@ -42,7 +66,7 @@ import lombok.experimental.Accessors;
 @ContextConfiguration
 class AsyncDataProcessorImplTest {
     @Configuration
-    @Import({ CommonsThreadingSpringConfig.class, CommonsUtilsSpringConfig.class })
+    @Import({ CommonsThreadingSpringConfig.class, CommonsUtilsSpringConfig.class, BeanWithThreadLocalProvider.class })
     static class ContextConfiguration {
 
     }
@@ -51,6 +75,8 @@ class AsyncDataProcessorImplTest {
     @Accessors(chain = true)
     static class TestEntity {
         int domainRef;
+
+        String enrichedValue;
     }
 
     @Value
@@ -83,6 +109,12 @@ class AsyncDataProcessorImplTest {
     @Autowired
     DataProcessorExtendable dataProcessorExtendable;
 
+    @Autowired
+    BeanWithThreadLocalProvider beanWithThreadLocalProvider;
+
+    @Autowired
+    ForkJoinPoolGuard forkJoinPoolGuard;
+
     @Test
     void test() {
         DefaultStateRevert.chain(chain -> {
@@ -201,4 +233,992 @@ class AsyncDataProcessorImplTest {
         })
                 .revert();
     }
+
+    @Test
+    void testBatchDataProcessor() {
+        DefaultStateRevert.chain(chain -> {
+            AtomicInteger batchCount = new AtomicInteger();
+            var batchSizes = new CopyOnWriteArrayList<Integer>();
+            chain.append(dataProcessorExtendable.registerDataProcessor(new BatchDataProcessor<TestEntity, TestEntityContext>() {
+                @Override
+                public List<CheckedConsumer<TestEntity>> processBatch(List<TestEntityContext> contexts) throws Exception {
+                    batchCount.incrementAndGet();
+                    batchSizes.add(contexts.size());
+                    var entityUpdaters = new ArrayList<CheckedConsumer<TestEntity>>(contexts.size());
+                    for (var context : contexts) {
+                        var value = "batch-" + context.getCurrentEntity()
+                                .getDomainRef();
+                        entityUpdaters.add(entity -> entity.setEnrichedValue(value));
+                    }
+                    return entityUpdaters;
+                }
+
+                @Override
+                public int getMaxBatchSize() {
+                    return 2;
+                }
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 5; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, Arrays.asList(TestDataScope.DS1), entity -> new TestEntityContext(entity), null);
+
+            // 5 entities with at most 2 per batch lead to 3 evenly distributed chunks
+            assertThat(batchCount.get()).isEqualTo(3);
+            assertThat(batchSizes).containsExactlyInAnyOrder(1, 2, 2);
+            for (var entity : entities) {
+                assertThat(entity.getEnrichedValue()).isEqualTo("batch-" + entity.getDomainRef());
+            }
+        })
+                .revert();
+    }
+
+    @Test
+    void testBatchDataProcessorChunkOutcomeAppliesToEachEntity() {
+        DefaultStateRevert.chain(chain -> {
+            var batchDataProcessor = new BatchDataProcessor<TestEntity, TestEntityContext>() {
+                @Override
+                public List<CheckedConsumer<TestEntity>> processBatch(List<TestEntityContext> contexts) throws Exception {
+                    var entityUpdaters = new ArrayList<CheckedConsumer<TestEntity>>(contexts.size());
+                    for (var context : contexts) {
+                        var value = "batch-" + context.getCurrentEntity()
+                                .getDomainRef();
+                        entityUpdaters.add(entity -> entity.setEnrichedValue(value));
+                    }
+                    return entityUpdaters;
+                }
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(batchDataProcessor, TestEntity.class, List.of(TestDataScope.DS1), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorConcurrentEntityUpdate(batchDataProcessor));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 3; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, Arrays.asList(TestDataScope.DS1), entity -> new TestEntityContext(entity), null);
+
+            // the worker applies the updaters of the whole chunk - not only the one of the first entity
+            for (var entity : entities) {
+                assertThat(entity.getEnrichedValue()).isEqualTo("batch-" + entity.getDomainRef());
+            }
+        })
+                .revert();
+    }
+
+    @Test
+    void testBatchDataProcessorTimeoutFallbackPerEntity() {
+        DefaultStateRevert.chain(chain -> {
+            var batchDataProcessor = new BatchDataProcessor<TestEntity, TestEntityContext>() {
+                @Override
+                public List<CheckedConsumer<TestEntity>> processBatch(List<TestEntityContext> contexts) throws Exception {
+                    Thread.sleep(10000);
+                    return null;
+                }
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(batchDataProcessor, TestEntity.class, List.of(TestDataScope.DS1), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorTimeout(batchDataProcessor, Duration.ofMillis(100)));
+            chain.append(dataProcessorExtendable.registerDataProcessorExceptionHandler(batchDataProcessor, new DataProcessorExceptionHandler() {
+                @Override
+                public <E, C> CheckedConsumer<E> handleProcessException(DataProcessor<E, C> dataProcessor, C context, Throwable e) {
+                    assertThat(e).isInstanceOf(DataProcessorTimeoutException.class);
+                    var value = "fallback-" + ((TestEntityContext) context).getCurrentEntity()
+                            .getDomainRef();
+                    return entity -> ((TestEntity) entity).setEnrichedValue(value);
+                }
+            }));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 3; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, Arrays.asList(TestDataScope.DS1), entity -> new TestEntityContext(entity), null);
+
+            for (var entity : entities) {
+                assertThat(entity.getEnrichedValue()).isEqualTo("fallback-" + entity.getDomainRef());
+            }
+        })
+                .revert();
+    }
+
+    @Test
+    void testChainCacheInvalidatedOnRegistration() {
+        DefaultStateRevert.chain(chain -> {
+            AtomicInteger invocationCount1 = new AtomicInteger();
+            AtomicInteger invocationCount2 = new AtomicInteger();
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> invocationCount1.incrementAndGet();
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS1), entity -> new TestEntityContext(entity), null);
+            assertThat(invocationCount1.get()).isEqualTo(1);
+
+            // the chain for DS1 is cached now but must not survive a new registration
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> invocationCount2.incrementAndGet();
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS1), entity -> new TestEntityContext(entity), null);
+            assertThat(invocationCount1.get()).isEqualTo(2);
+            assertThat(invocationCount2.get()).isEqualTo(1);
+        })
+                .revert();
+    }
+
+    @Test
+    void testExecutePrecompiledPlan() {
+        DefaultStateRevert.chain(chain -> {
+            AtomicInteger invocationCount1 = new AtomicInteger();
+            AtomicInteger invocationCount2 = new AtomicInteger();
+            AtomicInteger invocationCount3 = new AtomicInteger();
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> invocationCount1.incrementAndGet();
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> invocationCount2.incrementAndGet();
+            }, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+
+            DataProcessorPlan<TestEntity> plan = asyncDataProcessor.buildPlan(TestEntity.class, List.of(TestDataScope.DS4));
+            assertThat(plan.getStageCount()).isEqualTo(2);
+            assertThat(plan.getDataProcessorCount()).isEqualTo(2);
+
+            var entities = Arrays.asList(new TestEntity().setDomainRef(1), new TestEntity().setDomainRef(2));
+            asyncDataProcessor.execute(plan, entities, entity -> new TestEntityContext(entity));
+            asyncDataProcessor.execute(plan, entities, entity -> new TestEntityContext(entity));
+            assertThat(invocationCount1.get()).isEqualTo(4);
+            assertThat(invocationCount2.get()).isEqualTo(4);
+
+            // a stale plan is transparently rebuilt against the current configuration
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> invocationCount3.incrementAndGet();
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+
+            asyncDataProcessor.execute(plan, entities, entity -> new TestEntityContext(entity));
+            assertThat(invocationCount1.get()).isEqualTo(6);
+            assertThat(invocationCount2.get()).isEqualTo(6);
+            assertThat(invocationCount3.get()).isEqualTo(2);
+        })
+                .revert();
+    }
+
+    @Test
+    void testEntityProcessedConsumer() {
+        DefaultStateRevert.chain(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> entity.setEnrichedValue("a");
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> entity.setEnrichedValue(entity.getEnrichedValue() + "b");
+            }, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+            TestEntity te3 = new TestEntity().setDomainRef(3);
+
+            var enrichedValueOnConsume = new ConcurrentHashMap<Integer, String>();
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1, null, te2, te3),
+                    (TestEntity entity) -> entity == te3 ? List.<DataScope> of() : List.<DataScope> of(TestDataScope.DS4), entity -> new TestEntityContext(entity), null,
+                    entity -> enrichedValueOnConsume.put(entity.getDomainRef(), String.valueOf(entity.getEnrichedValue())));
+
+            // each entity is passed exactly once and only after all its data processors have been applied
+            assertThat(enrichedValueOnConsume).containsOnly(Map.entry(1, "ab"), Map.entry(2, "ab"), Map.entry(3, "null"));
+        })
+                .revert();
+    }
+
+    @Test
+    void testTimeoutWithExceptionHandler() throws InterruptedException {
+        var interrupted = new CountDownLatch(1);
+        DefaultStateRevert.chain(chain -> {
+            var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                try {
+                    Thread.sleep(10000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return entity -> entity.setEnrichedValue("slow");
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorTimeout(dataProcessor, Duration.ofMillis(100)));
+            chain.append(dataProcessorExtendable.registerDataProcessorExceptionHandler(dataProcessor, new DataProcessorExceptionHandler() {
+                @Override
+                public <E, C> CheckedConsumer<E> handleProcessException(DataProcessor<E, C> dataProcessor, C context, Throwable e) {
+                    assertThat(e).isInstanceOf(DataProcessorTimeoutException.class);
+                    return entity -> ((TestEntity) entity).setEnrichedValue("fallback");
+                }
+            }));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            var start = System.nanoTime();
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            assertThat(te1.getEnrichedValue()).isEqualTo("fallback");
+        })
+                .revert();
+        // the interrupt is delivered to the worker concurrently to the return of the call
+        assertThat(interrupted.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void testTimeoutHoldsForCallerOnPoolWorker() throws Exception {
+        var released = new CountDownLatch(1);
+        var revert = DefaultStateRevert.chain(chain -> {
+            var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                // ignores the interrupt so the deadline only holds if the caller does not execute the task inline
+                while (true) {
+                    try {
+                        if (released.await(10, TimeUnit.SECONDS)) {
+                            break;
+                        }
+                    } catch (InterruptedException e) {
+                        // intended blank
+                    }
+                }
+                return entity -> entity.setEnrichedValue("slow");
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorTimeout(dataProcessor, Duration.ofMillis(100)));
+            chain.append(dataProcessorExtendable.registerDataProcessorExceptionHandler(dataProcessor, new DataProcessorExceptionHandler() {
+                @Override
+                public <E, C> CheckedConsumer<E> handleProcessException(DataProcessor<E, C> dataProcessor, C context, Throwable e) {
+                    return entity -> ((TestEntity) entity).setEnrichedValue("fallback");
+                }
+            }));
+        });
+        try {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            var start = System.nanoTime();
+            // the caller is a worker of the very pool the data processor is submitted to
+            forkJoinPoolGuard.getDefaultForkJoinPool()
+                    .submit(() -> asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null))
+                    .get();
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            assertThat(te1.getEnrichedValue()).isEqualTo("fallback");
+        } finally {
+            released.countDown();
+            revert.revert();
+        }
+    }
+
+    @Test
+    void testTimeoutCancelsNonBlockingDataProcessor() {
+        DefaultStateRevert.chain(chain -> {
+            var stages = new CopyOnWriteArrayList<CompletableFuture<CheckedConsumer<TestEntity>>>();
+            var dataProcessor = new NonBlockingDataProcessor<TestEntity, TestEntityContext>() {
+                @Override
+                public CompletionStage<CheckedConsumer<TestEntity>> processAsync(TestEntityContext context) {
+                    // never completed by the backend
+                    var stage = new CompletableFuture<CheckedConsumer<TestEntity>>();
+                    stages.add(stage);
+                    return stage;
+                }
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorTimeout(dataProcessor, Duration.ofMillis(100)));
+            chain.append(dataProcessorExtendable.registerDataProcessorExceptionHandler(dataProcessor, new DataProcessorExceptionHandler() {
+                @Override
+                public <E, C> CheckedConsumer<E> handleProcessException(DataProcessor<E, C> dataProcessor, C context, Throwable e) {
+                    return entity -> ((TestEntity) entity).setEnrichedValue("fallback");
+                }
+            }));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+
+            assertThat(te1.getEnrichedValue()).isEqualTo("fallback");
+            assertThat(stages).singleElement()
+                    .satisfies(stage -> assertThat(stage.isCancelled()).isTrue());
+        })
+                .revert();
+    }
+
+    @Test
+    void testDeadlineWithoutExceptionHandler() {
+        DefaultStateRevert.chain(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                Thread.sleep(10000);
+                return entity -> entity.setEnrichedValue("slow");
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            var start = System.nanoTime();
+            var revert = asyncDataProcessor.pushDeadline(Duration.ofMillis(100));
+            try {
+                assertThrows(DataProcessorTimeoutException.class, () -> asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3),
+                        entity -> new TestEntityContext(entity), null));
+            } finally {
+                revert.revert();
+            }
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            assertThat(te1.getEnrichedValue()).isNull();
+        })
+                .revert();
+    }
+
+    @Test
+    void testCoalescingAcrossConcurrentCallers() throws Exception {
+        AtomicInteger invocationCount1 = new AtomicInteger();
+        var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+            var value = "shared-" + invocationCount1.incrementAndGet();
+            // keep the execution in flight long enough for the other caller to join it
+            Thread.sleep(1000);
+            return entity -> entity.setEnrichedValue(value);
+        };
+        var revert = DefaultStateRevert.chain(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorCoalescing(dataProcessor));
+        });
+        try {
+            var callerCount = 2;
+            var barrier = new CyclicBarrier(callerCount);
+            var executor = Executors.newFixedThreadPool(callerCount);
+            try {
+                var entities = new ArrayList<TestEntity>();
+                var futures = new ArrayList<Future<?>>();
+                for (int a = callerCount; a-- > 0;) {
+                    // different instances of the same domain object
+                    var entity = new TestEntity().setDomainRef(1);
+                    entities.add(entity);
+                    futures.add(executor.submit(() -> {
+                        barrier.await();
+                        asyncDataProcessor.processAllEntities(TestEntity.class, List.of(entity), List.of(TestDataScope.DS3), e -> new TestEntityContext(e), null);
+                        return null;
+                    }));
+                }
+                for (var future : futures) {
+                    future.get();
+                }
+                assertThat(invocationCount1.get()).isEqualTo(1);
+                assertThat(entities).allMatch(entity -> "shared-1".equals(entity.getEnrichedValue()));
+            } finally {
+                executor.shutdownNow();
+            }
+        } finally {
+            revert.revert();
+        }
+    }
+
+    @Test
+    void testNestedCoalescingOnForkedThread() {
+        DefaultStateRevert.chain(chain -> {
+            var invocationCount1 = new AtomicInteger();
+            var nestedEntity = new TestEntity().setDomainRef(1);
+            var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                if (invocationCount1.incrementAndGet() == 1) {
+                    // the nested call of the same domain object runs on another worker while this execution is in flight
+                    asyncDataProcessor.processAllEntities(TestEntity.class, List.of(nestedEntity), List.of(TestDataScope.DS3), e -> new TestEntityContext(e), null);
+                }
+                return entity -> entity.setEnrichedValue("coalesced");
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorCoalescing(dataProcessor));
+            // the deadline enforces the execution on another worker
+            chain.append(dataProcessorExtendable.registerDataProcessorTimeout(dataProcessor, Duration.ofSeconds(10)));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            var start = System.nanoTime();
+            asyncDataProcessor.processAllEntities(TestEntity.class, List.of(te1), List.of(TestDataScope.DS3), e -> new TestEntityContext(e), null);
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            assertThat(invocationCount1.get()).isEqualTo(2);
+            assertThat(te1.getEnrichedValue()).isEqualTo("coalesced");
+            assertThat(nestedEntity.getEnrichedValue()).isEqualTo("coalesced");
+        })
+                .revert();
+    }
+
+    @Test
+    void testResultCaching() {
+        DefaultStateRevert.chain(chain -> {
+            AtomicInteger invocationCount1 = new AtomicInteger();
+            var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                var value = "cached-" + invocationCount1.incrementAndGet();
+                return entity -> entity.setEnrichedValue(value);
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorResultCaching(dataProcessor, Duration.ofMinutes(1)));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te1Copy = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1Copy, te2), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+
+            // the second call reuses the entity updater of the first one for the same domain ref
+            assertThat(invocationCount1.get()).isEqualTo(2);
+            assertThat(te1.getEnrichedValue()).isEqualTo("cached-1");
+            assertThat(te1Copy.getEnrichedValue()).isEqualTo("cached-1");
+            assertThat(te2.getEnrichedValue()).isEqualTo("cached-2");
+        })
+                .revert();
+    }
+
+    @Test
+    void testConcurrentEntityUpdate() {
+        DefaultStateRevert.chain(chain -> {
+            var entityUpdated = new CountDownLatch(1);
+            var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> entity -> {
+                entity.setEnrichedValue("fast");
+                entityUpdated.countDown();
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorConcurrentEntityUpdate(dataProcessor));
+
+            var appliedBeforeStageFinished = new AtomicBoolean();
+            chain.append(dataProcessorExtendable.registerDataProcessor((DataProcessor<TestEntity, TestEntityContext>) context -> {
+                // only possible if the entity updater of the other data processor of this stage does not wait for the whole stage
+                appliedBeforeStageFinished.set(entityUpdated.await(5, TimeUnit.SECONDS));
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS4), null));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3, TestDataScope.DS4), entity -> new TestEntityContext(entity), null);
+
+            assertThat(appliedBeforeStageFinished.get()).isTrue();
+            assertThat(te1.getEnrichedValue()).isEqualTo("fast");
+        })
+                .revert();
+    }
+
+    @Test
+    void testCostEstimate() {
+        DefaultStateRevert.chain(chain -> {
+            var invocationOrder = new CopyOnWriteArrayList<String>();
+            var cheapDataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                invocationOrder.add("cheap");
+                return null;
+            };
+            var expensiveDataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                invocationOrder.add("expensive");
+                return entity -> entity.setEnrichedValue("expensive");
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(cheapDataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(expensiveDataProcessor, TestEntity.class, List.of(TestDataScope.DS4), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorCostEstimate(cheapDataProcessor, Duration.ofMillis(1)));
+            chain.append(dataProcessorExtendable.registerDataProcessorCostEstimate(expensiveDataProcessor, Duration.ofSeconds(1)));
+
+            assertThrows(IllegalArgumentException.class, () -> dataProcessorExtendable.registerDataProcessorCostEstimate(cheapDataProcessor, Duration.ZERO));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3, TestDataScope.DS4), entity -> new TestEntityContext(entity), null);
+
+            assertThat(invocationOrder).containsExactlyInAnyOrder("cheap", "expensive");
+            assertThat(te1.getEnrichedValue()).isEqualTo("expensive");
+        })
+                .revert();
+    }
+
+    @Test
+    void testSequentialExecutionOfTinyStages() {
+        var asyncDataProcessorImpl = (AsyncDataProcessorImpl) asyncDataProcessor;
+        DefaultStateRevert.chain(chain -> {
+            var callerThread = Thread.currentThread();
+            var executionThreads = new CopyOnWriteArrayList<Thread>();
+            var dataProcessor1 = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                executionThreads.add(Thread.currentThread());
+                return entity -> entity.setEnrichedValue("inline");
+            };
+            var dataProcessor2 = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                executionThreads.add(Thread.currentThread());
+                return null;
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor1, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor2, TestEntity.class, List.of(TestDataScope.DS4), null));
+
+            // by default even a single task is forked
+            TestEntity te0 = new TestEntity().setDomainRef(0);
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te0), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+
+            assertThat(te0.getEnrichedValue()).isEqualTo("inline");
+            assertThat(executionThreads).hasSize(1)
+                    .doesNotContain(callerThread);
+            executionThreads.clear();
+
+            asyncDataProcessorImpl.setSequentialTaskThreshold(1);
+            asyncDataProcessorImpl.setSequentialCostThresholdMicros(50);
+            try {
+                TestEntity te1 = new TestEntity().setDomainRef(1);
+
+                // a single task is not worth forking
+                asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+
+                assertThat(te1.getEnrichedValue()).isEqualTo("inline");
+                assertThat(executionThreads).containsExactly(callerThread);
+
+                // neither are several tasks known to be cheap
+                chain.append(dataProcessorExtendable.registerDataProcessorCostEstimate(dataProcessor1, Duration.ofNanos(1)));
+                chain.append(dataProcessorExtendable.registerDataProcessorCostEstimate(dataProcessor2, Duration.ofNanos(1)));
+                executionThreads.clear();
+
+                TestEntity te2 = new TestEntity().setDomainRef(2);
+                asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te2), Arrays.asList(TestDataScope.DS3, TestDataScope.DS4), entity -> new TestEntityContext(entity), null);
+
+                assertThat(te2.getEnrichedValue()).isEqualTo("inline");
+                assertThat(executionThreads).containsExactly(callerThread, callerThread);
+            } finally {
+                asyncDataProcessorImpl.setSequentialTaskThreshold(0);
+                asyncDataProcessorImpl.setSequentialCostThresholdMicros(0);
+            }
+        })
+                .revert();
+    }
+
+    @Test
+    void testBulkhead() {
+        DefaultStateRevert.chain(chain -> {
+            var runningCount = new AtomicInteger();
+            var maxRunningCount = new AtomicInteger();
+            var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> {
+                maxRunningCount.accumulateAndGet(runningCount.incrementAndGet(), Math::max);
+                try {
+                    // simulates a slow backend
+                    Thread.sleep(50);
+                } finally {
+                    runningCount.decrementAndGet();
+                }
+                return entity -> entity.setEnrichedValue("limited");
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorBulkhead(dataProcessor, "slowBackend", 2));
+
+            assertThrows(IllegalStateException.class, () -> dataProcessorExtendable.registerDataProcessorBulkhead(dataProcessor, "slowBackend", 2));
+            assertThrows(IllegalStateException.class,
+                    () -> dataProcessorExtendable.registerDataProcessorBulkhead((DataProcessor<TestEntity, TestEntityContext>) context -> null, "slowBackend", 3));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 10; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+
+            assertThat(entities).allMatch(entity -> "limited".equals(entity.getEnrichedValue()));
+            assertThat(maxRunningCount.get()).isBetween(1, 2);
+        })
+                .revert();
+    }
+
+    @Test
+    void testCyclicDependencyRejected() {
+        DefaultStateRevert.chain(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor((DataProcessor<TestEntity, TestEntityContext>) context -> {
+                return entity -> entity.setEnrichedValue("ds3");
+            }, TestEntity.class, List.of(TestDataScope.DS3), List.of(TestDataScope.DS4)));
+
+            var ex = assertThrows(IllegalStateException.class,
+                    () -> dataProcessorExtendable.registerDataProcessor((DataProcessor<TestEntity, TestEntityContext>) context -> null, TestEntity.class, List.of(TestDataScope.DS4),
+                            List.of(TestDataScope.DS3)));
+            assertThat(ex.getMessage()).startsWith("Cyclic data processor dependency");
+
+            // the rejected registration left no trace
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+            assertThat(te1.getEnrichedValue()).isEqualTo("ds3");
+        })
+                .revert();
+    }
+
+    @Test
+    void testRegisterAll() {
+        DataProcessor<TestEntity, TestEntityContext> ds3DataProcessor = context -> entity -> entity.setEnrichedValue("ds3");
+
+        var revert = dataProcessorExtendable.registerAll(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor(ds3DataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor((DataProcessor<TestEntity, TestEntityContext>) context -> {
+                var value = context.getCurrentEntity()
+                        .getEnrichedValue();
+                return entity -> entity.setEnrichedValue(value + "-ds4");
+            }, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+        });
+        try {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS4), entity -> new TestEntityContext(entity), null);
+            assertThat(te1.getEnrichedValue()).isEqualTo("ds3-ds4");
+
+            // the batch introduces a cycle in its last step: none of its registrations gets visible
+            assertThrows(IllegalStateException.class, () -> dataProcessorExtendable.registerAll(chain -> {
+                chain.append(dataProcessorExtendable.registerDataProcessorTimeout(ds3DataProcessor, Duration.ofMillis(1)));
+                chain.append(dataProcessorExtendable.registerDataProcessorDependency(ds3DataProcessor, TestDataScope.DS4));
+            }));
+
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te2), Arrays.asList(TestDataScope.DS4), entity -> new TestEntityContext(entity), null);
+            assertThat(te2.getEnrichedValue()).isEqualTo("ds3-ds4");
+        } finally {
+            revert.revert();
+        }
+    }
+
+    @Test
+    void testPartialFailure() {
+        DefaultStateRevert.chain(chain -> {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+            TestEntity te3 = new TestEntity().setDomainRef(3);
+            TestEntity te4 = new TestEntity().setDomainRef(4);
+            var invocations = new CopyOnWriteArrayList<String>();
+
+            TestEntityDataProcessor failingDataProcessor = context -> {
+                if (context.getCurrentEntity() == te2) {
+                    throw new SocketTimeoutException();
+                }
+                return null;
+            };
+            var independentDataProcessor = new TestEntityDataProcessor() {
+                @Override
+                public boolean expectsExecution(TestEntity entity, TestEntityContext context) {
+                    if (entity == te4) {
+                        throw new IllegalStateException("expectsExecution");
+                    }
+                    return true;
+                }
+
+                @Override
+                public CheckedConsumer<TestEntity> process(TestEntityContext context) {
+                    invocations.add("independent-" + context.getCurrentEntity()
+                            .getDomainRef());
+                    return null;
+                }
+            };
+            var downstreamDataProcessor = (TestEntityDataProcessor) context -> {
+                invocations.add("downstream-" + context.getCurrentEntity()
+                        .getDomainRef());
+                return entity -> entity.setEnrichedValue("downstream");
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(failingDataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(independentDataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(downstreamDataProcessor, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+
+            var result = asyncDataProcessor.tryProcessAllEntities(TestEntity.class, Arrays.asList(te1, null, te2, te3, te4), Arrays.asList(TestDataScope.DS4), entity -> {
+                if (entity == te3) {
+                    throw new IllegalStateException("contextBuilder");
+                }
+                return new TestEntityContext(entity);
+            }, null);
+
+            // only the downstream data processor of the failed entity is skipped
+            assertThat(invocations).containsExactlyInAnyOrder("independent-1", "independent-2", "downstream-1");
+            assertThat(te1.getEnrichedValue()).isEqualTo("downstream");
+            assertThat(te2.getEnrichedValue()).isNull();
+            assertThat(te3.getEnrichedValue()).isNull();
+            assertThat(te4.getEnrichedValue()).isNull();
+
+            assertThat(result.hasFailures()).isTrue();
+            assertThat(result.getProcessedEntities()).containsExactly(te1);
+            assertThat(result.getFailedEntities()).containsExactly(te2, te3, te4);
+            assertThat(result.getEntityResults()).extracting(Either::isRight)
+                    .containsExactly(true, false, false, false);
+            assertThat(result.getFailures()).filteredOn(failure -> failure.getEntity() == te2)
+                    .singleElement()
+                    .satisfies(failure -> {
+                        assertThat(failure.getDataProcessor()).isSameAs(failingDataProcessor);
+                        assertThat(failure.getCause()).isInstanceOf(SocketTimeoutException.class);
+                    });
+            // none of the data processors of the entity without context could be executed
+            assertThat(result.getFailures()).filteredOn(failure -> failure.getEntity() == te3)
+                    .extracting(DataProcessorFailure::getDataProcessor)
+                    .containsExactlyInAnyOrder(failingDataProcessor, independentDataProcessor, downstreamDataProcessor);
+            assertThat(result.getFailures()).filteredOn(failure -> failure.getEntity() == te4)
+                    .singleElement()
+                    .satisfies(failure -> {
+                        assertThat(failure.getDataProcessor()).isSameAs(independentDataProcessor);
+                        assertThat(failure.getCause()).hasMessage("expectsExecution");
+                    });
+        })
+                .revert();
+    }
+
+    @Test
+    void testHedging() throws InterruptedException {
+        var slowInvocationReleased = new CountDownLatch(1);
+        var slowInvocationInterrupted = new CountDownLatch(1);
+        DefaultStateRevert.chain(chain -> {
+            var slowInvocationPending = new AtomicBoolean();
+            var invocationCount = new AtomicInteger();
+            TestEntityDataProcessor dataProcessor = context -> {
+                invocationCount.incrementAndGet();
+                if (slowInvocationPending.compareAndSet(true, false)) {
+                    // like a blocking socket read: the interrupt does not end the invocation
+                    while (true) {
+                        try {
+                            slowInvocationReleased.await(10, TimeUnit.SECONDS);
+                            break;
+                        } catch (InterruptedException e) {
+                            slowInvocationInterrupted.countDown();
+                        }
+                    }
+                    return entity -> entity.setEnrichedValue("slow");
+                }
+                Thread.sleep(1);
+                return entity -> entity.setEnrichedValue("fast");
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorHedging(dataProcessor, 50));
+
+            assertThrows(IllegalArgumentException.class, () -> dataProcessorExtendable.registerDataProcessorHedging(dataProcessor, 100));
+
+            // learn the regular latency first
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 30; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+            // regular invocations beyond the percentile may already have been hedged
+            assertThat(invocationCount.get()).isGreaterThanOrEqualTo(30);
+            var learnedInvocationCount = invocationCount.get();
+
+            slowInvocationPending.set(true);
+            TestEntity te1 = new TestEntity().setDomainRef(100);
+            var startNanos = System.nanoTime();
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+
+            // the hedged invocation won and released the caller although the slow one ignores its interrupt
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)).isLessThan(5000);
+            assertThat(te1.getEnrichedValue()).isEqualTo("fast");
+            assertThat(invocationCount.get()).isEqualTo(learnedInvocationCount + 2);
+        })
+                .revert();
+        assertThat(slowInvocationInterrupted.await(5, TimeUnit.SECONDS)).isTrue();
+        slowInvocationReleased.countDown();
+    }
+
+    @Test
+    void testNonBlockingDataProcessor() {
+        var backend = Executors.newSingleThreadScheduledExecutor();
+        try {
+            DefaultStateRevert.chain(chain -> {
+                TestEntity te1 = new TestEntity().setDomainRef(1);
+                TestEntity te2 = new TestEntity().setDomainRef(2);
+                var invokingThreads = new CopyOnWriteArrayList<Thread>();
+
+                chain.append(dataProcessorExtendable.registerDataProcessor(new NonBlockingDataProcessor<TestEntity, TestEntityContext>() {
+                    @Override
+                    public CompletionStage<CheckedConsumer<TestEntity>> processAsync(TestEntityContext context) {
+                        invokingThreads.add(Thread.currentThread());
+                        var currentEntity = context.getCurrentEntity();
+                        var stage = new CompletableFuture<CheckedConsumer<TestEntity>>();
+                        backend.schedule(() -> {
+                            if (currentEntity == te2) {
+                                stage.completeExceptionally(new SocketTimeoutException());
+                            } else {
+                                stage.complete(entity -> entity.setEnrichedValue("async"));
+                            }
+                        }, 50, TimeUnit.MILLISECONDS);
+                        return stage;
+                    }
+                }, TestEntity.class, List.of(TestDataScope.DS3), null));
+                chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                    var enrichedValue = context.getCurrentEntity()
+                            .getEnrichedValue();
+                    return entity -> entity.setEnrichedValue(enrichedValue + "-downstream");
+                }, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+
+                var result = asyncDataProcessor.tryProcessAllEntities(TestEntity.class, Arrays.asList(te1, te2), Arrays.asList(TestDataScope.DS4), entity -> new TestEntityContext(entity),
+                        null);
+
+                // the data processor is only started by the calling thread. no worker waits for the backend
+                assertThat(invokingThreads).containsOnly(Thread.currentThread());
+                assertThat(te1.getEnrichedValue()).isEqualTo("async-downstream");
+                assertThat(te2.getEnrichedValue()).isNull();
+                assertThat(result.getFailures()).singleElement()
+                        .satisfies(failure -> assertThat(failure.getCause()).isInstanceOf(SocketTimeoutException.class));
+            })
+                    .revert();
+        } finally {
+            backend.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecutionStatistics() {
+        DefaultStateRevert.chain(chain -> {
+            var statistics = new InMemoryDataProcessorExecutionStatistics();
+            chain.append(dataProcessorExtendable.registerDataProcessorExecutionListener(statistics));
+
+            TestEntityDataProcessor slowDataProcessor = context -> {
+                Thread.sleep(20);
+                return null;
+            };
+            TestEntityDataProcessor fastDataProcessor = context -> null;
+            chain.append(dataProcessorExtendable.registerDataProcessor(slowDataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(fastDataProcessor, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+
+            var entityToUsedDataScopes = new ConcurrentHashMap<Object, Map<Object, Set<DataScope>>>();
+            var entities = Arrays.asList(new TestEntity().setDomainRef(1), new TestEntity().setDomainRef(2));
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, Arrays.asList(TestDataScope.DS4), entity -> new TestEntityContext(entity), entityToUsedDataScopes);
+            // everything has already been processed for the given data scopes
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, Arrays.asList(TestDataScope.DS4), entity -> new TestEntityContext(entity), entityToUsedDataScopes);
+
+            assertThat(statistics.getDataProcessorsByTotalRunTime()).containsExactly(slowDataProcessor, fastDataProcessor);
+
+            var slowStatistics = statistics.getDataProcessorStatistics(slowDataProcessor);
+            assertThat(slowStatistics.getProcessedEntityCount()).isEqualTo(2);
+            assertThat(slowStatistics.getSkippedEntityCount()).isEqualTo(2);
+            assertThat(slowStatistics.getFailureCount()).isZero();
+            assertThat(slowStatistics.getRunTime()
+                    .getMaxNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+
+            var entityTypeStatistics = statistics.getEntityTypeStatistics(TestEntity.class);
+            assertThat(entityTypeStatistics.getExecutionTime()
+                    .getCount()).isEqualTo(2);
+            assertThat(entityTypeStatistics.getEntityCount()).isEqualTo(4);
+            assertThat(entityTypeStatistics.getPlanCompileTime()
+                    .getCount()).isEqualTo(1);
+            assertThat(entityTypeStatistics.getStageTimes()).containsOnlyKeys(0, 1);
+        })
+                .revert();
+    }
+
+    @Test
+    void testLazyProcessing() {
+        DefaultStateRevert.chain(chain -> {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+            var invocations = new CopyOnWriteArrayList<String>();
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                invocations.add("ds3-" + context.getCurrentEntity()
+                        .getDomainRef());
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                invocations.add("ds4-" + context.getCurrentEntity()
+                        .getDomainRef());
+                return entity -> entity.setEnrichedValue("ds4");
+            }, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+
+            var lazyProcessing = asyncDataProcessor.processAllEntitiesLazily(TestEntity.class, Arrays.asList(te1, null, te2), Arrays.asList(TestDataScope.DS3, TestDataScope.DS4),
+                    entity -> new TestEntityContext(entity), null);
+            assertThat(invocations).isEmpty();
+            assertThat(lazyProcessing.getPendingDataScopes()).containsExactly(TestDataScope.DS3, TestDataScope.DS4);
+
+            // the first access processes the data scope for all entities at once
+            lazyProcessing.ensureScope(te1, TestDataScope.DS3);
+            assertThat(invocations).containsExactlyInAnyOrder("ds3-1", "ds3-2");
+            lazyProcessing.ensureScope(te2, TestDataScope.DS3);
+            assertThat(invocations).hasSize(2);
+
+            // the already processed required data scope is not processed again
+            lazyProcessing.ensureScope(TestDataScope.DS4);
+            assertThat(invocations).containsExactlyInAnyOrder("ds3-1", "ds3-2", "ds4-1", "ds4-2");
+            assertThat(te1.getEnrichedValue()).isEqualTo("ds4");
+            assertThat(lazyProcessing.getPendingDataScopes()).isEmpty();
+
+            lazyProcessing.ensureAllScopes();
+            assertThat(invocations).hasSize(4);
+
+            assertThrows(IllegalArgumentException.class, () -> lazyProcessing.ensureScope(TestDataScope.DS1));
+            assertThrows(IllegalArgumentException.class, () -> lazyProcessing.ensureScope(new TestEntity().setDomainRef(3), TestDataScope.DS3));
+        })
+                .revert();
+    }
+
+    @Test
+    void testLazyProcessingRejectsReentrantEnsure() {
+        var asyncDataProcessorImpl = (AsyncDataProcessorImpl) asyncDataProcessor;
+        DefaultStateRevert.chain(chain -> {
+            var lazyProcessingRef = new AtomicReference<LazyDataProcessing<TestEntity>>();
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                // waits for its own execution
+                lazyProcessingRef.get()
+                        .ensureScope(TestDataScope.DS3);
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+
+            var lazyProcessing = asyncDataProcessor.processAllEntitiesLazily(TestEntity.class, Arrays.asList(new TestEntity().setDomainRef(1)), Arrays.asList(TestDataScope.DS3),
+                    entity -> new TestEntityContext(entity), null);
+            lazyProcessingRef.set(lazyProcessing);
+
+            // the data processor runs on the ensuring thread itself
+            asyncDataProcessorImpl.setSequentialTaskThreshold(1);
+            try {
+                assertThrows(IllegalStateException.class, () -> lazyProcessing.ensureScope(TestDataScope.DS3));
+            } finally {
+                asyncDataProcessorImpl.setSequentialTaskThreshold(0);
+            }
+            assertThat(lazyProcessing.getPendingDataScopes()).containsExactly(TestDataScope.DS3);
+        })
+                .revert();
+    }
+
+    @Test
+    void testLazyProcessingRetriesFailedForeignExecution() throws Exception {
+        var invocationCount = new AtomicInteger();
+        var firstStarted = new CountDownLatch(1);
+        var firstReleased = new CountDownLatch(1);
+        var revert = DefaultStateRevert.chain(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                if (invocationCount.incrementAndGet() == 1) {
+                    firstStarted.countDown();
+                    firstReleased.await();
+                    throw new IllegalStateException("first execution fails");
+                }
+                return entity -> entity.setEnrichedValue("retried");
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+        });
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            var lazyProcessing = asyncDataProcessor.processAllEntitiesLazily(TestEntity.class, Arrays.asList(te1), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity),
+                    null);
+
+            var firstFuture = executor.submit(() -> lazyProcessing.ensureScope(TestDataScope.DS3));
+            assertThat(firstStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+            var waitingThread = new AtomicReference<Thread>();
+            var secondFuture = executor.submit(() -> {
+                waitingThread.set(Thread.currentThread());
+                lazyProcessing.ensureScope(TestDataScope.DS3);
+            });
+            // let the second caller wait for the execution of the first one before it fails
+            var waitUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (waitingThread.get() == null || waitingThread.get()
+                    .getState() != Thread.State.WAITING) {
+                assertThat(System.nanoTime() - waitUntil).isNegative();
+                Thread.sleep(1);
+            }
+            firstReleased.countDown();
+
+            var firstFailure = assertThrows(ExecutionException.class, firstFuture::get);
+            assertThat(firstFailure.getCause()).isInstanceOf(IllegalStateException.class);
+            // the second caller does not fail with the exception of the first one but processes the data scope itself
+            secondFuture.get(5, TimeUnit.SECONDS);
+            assertThat(invocationCount.get()).isEqualTo(2);
+            assertThat(te1.getEnrichedValue()).isEqualTo("retried");
+            assertThat(lazyProcessing.getPendingDataScopes()).isEmpty();
+        } finally {
+            executor.shutdownNow();
+            revert.revert();
+        }
+    }
+
+    @Test
+    void testConcurrentEntityUpdateSeesTransferredThreadLocals() {
+        DefaultStateRevert.chain(chain -> {
+            var threadLocalValueInUpdater = new AtomicReference<String>();
+            var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> entity -> threadLocalValueInUpdater.set(beanWithThreadLocalProvider.lastValueTL.get());
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorConcurrentEntityUpdate(dataProcessor));
+            // the deadline enforces the execution on another worker
+            chain.append(dataProcessorExtendable.registerDataProcessorTimeout(dataProcessor, Duration.ofSeconds(10)));
+
+            beanWithThreadLocalProvider.lastValueTL.set("tenant-1");
+            try {
+                asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(new TestEntity().setDomainRef(1)), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity),
+                        null);
+            } finally {
+                beanWithThreadLocalProvider.lastValueTL.remove();
+            }
+            assertThat(threadLocalValueInUpdater.get()).isEqualTo("tenant-1");
+        })
+                .revert();
+    }
 }
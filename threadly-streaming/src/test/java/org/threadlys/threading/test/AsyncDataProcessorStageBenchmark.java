@@ -0,0 +1,159 @@
+package org.threadlys.threading.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.threadlys.utils.DefaultStateRevert;
+import org.threadlys.utils.configuration.CommonsUtilsSpringConfig;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import org.threadlys.configuration.CommonsThreadingSpringConfig;
+import org.threadlys.streams.AsyncDataProcessor;
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataProcessorContext;
+import org.threadlys.streams.DataProcessorExtendable;
+import org.threadlys.streams.DataScope;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Measures the CPU time spent per {@link AsyncDataProcessor#processAllEntities} request while several requests share the same pool. It is not part of the regular build as it does not match the
+ * surefire includes. Run it explicitly via <code>mvn test -Dtest=AsyncDataProcessorStageBenchmark</code>
+ */
+@Slf4j
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration
+class AsyncDataProcessorStageBenchmark {
+    @Configuration
+    @Import({ CommonsThreadingSpringConfig.class, CommonsUtilsSpringConfig.class })
+    static class ContextConfiguration {
+
+    }
+
+    private static final int CALLER_COUNT = 8;
+
+    private static final int REQUESTS_PER_CALLER = 50;
+
+    private static final int ENTITIES_PER_REQUEST = 64;
+
+    @Data
+    @Accessors(chain = true)
+    static class TestEntity {
+        int domainRef;
+
+        int value;
+    }
+
+    @Value
+    @RequiredArgsConstructor
+    static class TestEntityContext implements DataProcessorContext {
+        private final TestEntity currentEntity;
+
+        @Override
+        public Object extractDomainRef(Object entity) {
+            return ((TestEntity) entity).getDomainRef();
+        }
+    }
+
+    enum TestDataScope implements DataScope {
+        DS1, DS2;
+
+        @Override
+        public boolean isPartOf(DataScope scope) {
+            return scope == this;
+        }
+    }
+
+    @Autowired
+    AsyncDataProcessor asyncDataProcessor;
+
+    @Autowired
+    DataProcessorExtendable dataProcessorExtendable;
+
+    @SneakyThrows
+    @Test
+    void cpuTimePerRequest() {
+        DefaultStateRevert.chain(chain -> {
+            // simulates a remote call
+            chain.append(dataProcessorExtendable.registerDataProcessor((DataProcessor<TestEntity, TestEntityContext>) context -> {
+                Thread.sleep(2);
+                return entity -> entity.setValue(1);
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+            // cheap local calculation depending on the remote result
+            chain.append(dataProcessorExtendable.registerDataProcessor((DataProcessor<TestEntity, TestEntityContext>) context -> {
+                var value = context.getCurrentEntity()
+                        .getValue();
+                return entity -> entity.setValue(value + 1);
+            }, TestEntity.class, List.of(TestDataScope.DS2), List.of(TestDataScope.DS1)));
+
+            // warmup
+            runRequests(new AtomicLong());
+
+            var threadMXBean = ManagementFactory.getThreadMXBean();
+            var osMXBean = (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+            var callerCpuTime = new AtomicLong();
+
+            var processCpuTimeBefore = osMXBean.getProcessCpuTime();
+            var wallTimeBefore = System.nanoTime();
+            runRequests(callerCpuTime);
+            var wallTime = System.nanoTime() - wallTimeBefore;
+            var processCpuTime = osMXBean.getProcessCpuTime() - processCpuTimeBefore;
+
+            var requestCount = CALLER_COUNT * REQUESTS_PER_CALLER;
+            log.info("{} requests of {} entities: process cpu {} us/request, caller cpu {} us/request, wall {} ms total", requestCount, ENTITIES_PER_REQUEST,
+                    TimeUnit.NANOSECONDS.toMicros(processCpuTime / requestCount), TimeUnit.NANOSECONDS.toMicros(callerCpuTime.get() / requestCount), TimeUnit.NANOSECONDS.toMillis(wallTime));
+            assertThat(threadMXBean.isCurrentThreadCpuTimeSupported()).isTrue();
+        })
+                .revert();
+    }
+
+    @SneakyThrows
+    protected void runRequests(AtomicLong callerCpuTime) {
+        var threadMXBean = ManagementFactory.getThreadMXBean();
+        var executor = Executors.newFixedThreadPool(CALLER_COUNT);
+        try {
+            var callers = new ArrayList<Callable<Object>>();
+            for (int a = CALLER_COUNT; a-- > 0;) {
+                callers.add(() -> {
+                    var cpuTimeBefore = threadMXBean.getCurrentThreadCpuTime();
+                    for (int b = REQUESTS_PER_CALLER; b-- > 0;) {
+                        var entities = new ArrayList<TestEntity>(ENTITIES_PER_REQUEST);
+                        for (int c = 0; c < ENTITIES_PER_REQUEST; c++) {
+                            entities.add(new TestEntity().setDomainRef(c));
+                        }
+                        asyncDataProcessor.processAllEntities(TestEntity.class, entities, List.of(TestDataScope.DS2), entity -> new TestEntityContext(entity), null);
+                        assertThat(entities).allMatch(entity -> entity.getValue() == 2);
+                    }
+                    callerCpuTime.addAndGet(threadMXBean.getCurrentThreadCpuTime() - cpuTimeBefore);
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(callers)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.threadlys.threading.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import org.threadlys.streams.DataScope;
+import org.threadlys.streams.impl.DataScopeRegistry;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class DataScopeRegistryTest {
+    static class TestDataScope implements DataScope {
+        @Override
+        public boolean isPartOf(DataScope scope) {
+            return scope == this;
+        }
+    }
+
+    @Test
+    void testOrdinalsAreStable() {
+        var registry = new DataScopeRegistry();
+        var ds1 = new TestDataScope();
+        var ds2 = new TestDataScope();
+
+        assertThat(registry.register(ds1)).isZero();
+        assertThat(registry.register(ds2)).isEqualTo(1);
+        assertThat(registry.ordinalOf(ds1)).isZero();
+        assertThat(registry.dataScopeOf(1)).isSameAs(ds2);
+    }
+
+    @Test
+    void testUnknownDataScopesAreNotRegistered() {
+        var registry = new DataScopeRegistry();
+        var ds1 = new TestDataScope();
+        var unknown = new TestDataScope();
+        registry.register(ds1);
+
+        assertThat(registry.ordinalOf(unknown)).isEqualTo(-1);
+        assertThat(registry.toDataScopes(registry.toBits(List.of(ds1, unknown)))).containsExactly(ds1);
+        for (int a = 0; a < 100; a++) {
+            registry.toBits(List.of(new TestDataScope()));
+        }
+        assertThat(registry.ordinalOf(unknown)).isEqualTo(-1);
+        assertThat(registry.register(unknown)).isEqualTo(1);
+    }
+
+    @Test
+    void testBitOperationsAcrossWords() {
+        var registry = new DataScopeRegistry();
+        var dataScopes = new ArrayList<DataScope>();
+        for (int a = 0; a < 130; a++) {
+            dataScopes.add(new TestDataScope());
+            registry.register(dataScopes.get(a));
+        }
+        var lowBits = registry.toBits(List.of(dataScopes.get(1), dataScopes.get(2)));
+        var highBits = registry.toBits(List.of(dataScopes.get(2), dataScopes.get(129)));
+
+        assertThat(lowBits).hasSize(1);
+        assertThat(highBits).hasSize(3);
+        assertThat(DataScopeRegistry.intersects(lowBits, highBits)).isTrue();
+        assertThat(DataScopeRegistry.contains(highBits, 129)).isTrue();
+        assertThat(DataScopeRegistry.contains(lowBits, 129)).isFalse();
+
+        var unionBits = DataScopeRegistry.or(lowBits, highBits);
+        assertThat(registry.toDataScopes(unionBits)).containsExactly(dataScopes.get(1), dataScopes.get(2), dataScopes.get(129));
+
+        var differenceBits = DataScopeRegistry.andNot(highBits, lowBits);
+        assertThat(registry.toDataScopes(differenceBits)).containsExactly(dataScopes.get(129));
+        assertThat(DataScopeRegistry.isEmpty(DataScopeRegistry.andNot(lowBits, unionBits))).isTrue();
+
+        // the operands are never modified in place
+        assertThat(registry.toDataScopes(lowBits)).containsExactly(dataScopes.get(1), dataScopes.get(2));
+    }
+}
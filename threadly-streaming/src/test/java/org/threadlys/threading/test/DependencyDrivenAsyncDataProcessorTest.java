@@ -0,0 +1,362 @@
+package org.threadlys.threading.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.threadlys.streams.AsyncDataProcessor;
+import org.threadlys.streams.CheckedConsumer;
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataProcessorContext;
+import org.threadlys.streams.DataProcessorExceptionHandler;
+import org.threadlys.streams.DataProcessorExtendable;
+import org.threadlys.streams.DataProcessorTimeoutException;
+import org.threadlys.streams.NonBlockingDataProcessor;
+import org.threadlys.utils.DefaultStateRevert;
+import org.threadlys.utils.configuration.CommonsUtilsSpringConfig;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import org.threadlys.configuration.CommonsThreadingSpringConfig;
+import org.threadlys.threading.test.context.BeanWithThreadLocalProvider;
+import org.threadlys.streams.DataScope;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+@TestPropertySource(properties = { "threadlys.streams.execution-mode=DEPENDENCY_DRIVEN" })
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration
+class DependencyDrivenAsyncDataProcessorTest {
+    @Configuration
+    @Import({ CommonsThreadingSpringConfig.class, CommonsUtilsSpringConfig.class, BeanWithThreadLocalProvider.class })
+    static class ContextConfiguration {
+
+    }
+
+    @Data
+    @Accessors(chain = true)
+    static class TestEntity {
+        int domainRef;
+    }
+
+    @Value
+    @RequiredArgsConstructor
+    static class TestEntityContext implements DataProcessorContext {
+        private final TestEntity currentEntity;
+
+        @Override
+        public Object extractDomainRef(Object entity) {
+            return ((TestEntity) entity).getDomainRef();
+        }
+    }
+
+    static interface TestEntityDataProcessor extends DataProcessor<TestEntity, TestEntityContext> {
+        // intended blank
+    }
+
+    enum TestDataScope implements DataScope {
+        DS1, DS2, DS3, DS4;
+
+        @Override
+        public boolean isPartOf(DataScope scope) {
+            return scope == this;
+        }
+    }
+
+    @Autowired
+    AsyncDataProcessor asyncDataProcessor;
+
+    @Autowired
+    DataProcessorExtendable dataProcessorExtendable;
+
+    @Autowired
+    BeanWithThreadLocalProvider beanWithThreadLocalProvider;
+
+    @Test
+    void testWithDataProcessorChain() {
+        DefaultStateRevert.chain(chain -> {
+            Map<Object, List<Integer>> entityToInvocationOrder = new ConcurrentHashMap<>();
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                entityToInvocationOrder.computeIfAbsent(context.getCurrentEntity(), key -> new CopyOnWriteArrayList<>())
+                        .add(2);
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS2), List.of(TestDataScope.DS3)));
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                entityToInvocationOrder.computeIfAbsent(context.getCurrentEntity(), key -> new CopyOnWriteArrayList<>())
+                        .add(1);
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS1), List.of(TestDataScope.DS2)));
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                entityToInvocationOrder.computeIfAbsent(context.getCurrentEntity(), key -> new CopyOnWriteArrayList<>())
+                        .add(4);
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3, TestDataScope.DS2)));
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                entityToInvocationOrder.computeIfAbsent(context.getCurrentEntity(), key -> new CopyOnWriteArrayList<>())
+                        .add(3);
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+
+            List<List<Integer>> possibleExpectedOrders = Arrays.asList(Arrays.asList(3, 2, 4, 1), Arrays.asList(3, 2, 1, 4));
+
+            for (int b = 100; b-- > 0;) {
+                asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1, te2), (entity) -> Arrays.asList(TestDataScope.DS4, TestDataScope.DS1),
+                        entity -> new TestEntityContext(entity), null);
+
+                assertThat(entityToInvocationOrder.size()).isEqualTo(2);
+                assertThat(possibleExpectedOrders).contains(entityToInvocationOrder.get(te1), entityToInvocationOrder.get(te2));
+                entityToInvocationOrder.clear();
+            }
+        })
+                .revert();
+    }
+
+    @Test
+    void testSlowEntityDoesNotBlockOtherEntities() {
+        DefaultStateRevert.chain(chain -> {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+
+            var downstreamOfTe2Finished = new CountDownLatch(1);
+            var downstreamOfTe2FinishedInTime = new AtomicBoolean();
+            var downstreamInvocationCount = new AtomicInteger();
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                if (context.getCurrentEntity() == te1) {
+                    // in staged mode the downstream processor of te2 would never start while we wait here
+                    downstreamOfTe2FinishedInTime.set(downstreamOfTe2Finished.await(10, TimeUnit.SECONDS));
+                }
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                downstreamInvocationCount.incrementAndGet();
+                if (context.getCurrentEntity() == te2) {
+                    downstreamOfTe2Finished.countDown();
+                }
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS2), List.of(TestDataScope.DS1)));
+
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1, te2), Arrays.asList(TestDataScope.DS2), entity -> new TestEntityContext(entity), null);
+
+            assertThat(downstreamOfTe2FinishedInTime.get()).isTrue();
+            assertThat(downstreamInvocationCount.get()).isEqualTo(2);
+        })
+                .revert();
+    }
+
+    @Test
+    void testExceptionWithoutExceptionHandler() {
+        DefaultStateRevert.chain(chain -> {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                if (context.getCurrentEntity() == te1) {
+                    throw new SocketTimeoutException();
+                }
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            assertThrows(SocketTimeoutException.class, () -> asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1, te2), (entity) -> Arrays.asList(TestDataScope.DS1),
+                    entity -> new TestEntityContext(entity), null));
+        })
+                .revert();
+    }
+
+    @Test
+    void testPartialFailure() {
+        DefaultStateRevert.chain(chain -> {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+            var downstreamInvocations = new CopyOnWriteArrayList<TestEntity>();
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                if (context.getCurrentEntity() == te1) {
+                    throw new SocketTimeoutException();
+                }
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                downstreamInvocations.add(context.getCurrentEntity());
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+
+            TestEntity te3 = new TestEntity().setDomainRef(3);
+            var result = asyncDataProcessor.tryProcessAllEntities(TestEntity.class, Arrays.asList(te1, te2, te3), Arrays.asList(TestDataScope.DS4), entity -> {
+                if (entity == te3) {
+                    throw new IllegalStateException("contextBuilder");
+                }
+                return new TestEntityContext(entity);
+            }, null);
+
+            assertThat(downstreamInvocations).containsExactly(te2);
+            assertThat(result.getFailedEntities()).containsExactly(te1, te3);
+            assertThat(result.getProcessedEntities()).containsExactly(te2);
+        })
+                .revert();
+    }
+
+    @Test
+    void testEntityIsPassedToConsumerAsSoonAsItIsProcessed() {
+        DefaultStateRevert.chain(chain -> {
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+
+            var te2Processed = new CountDownLatch(1);
+            var te2ProcessedInTime = new AtomicBoolean();
+            var processedEntities = new CopyOnWriteArrayList<TestEntity>();
+
+            chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                if (context.getCurrentEntity() == te1) {
+                    // te2 has to be passed to the consumer while te1 is still in progress
+                    te2ProcessedInTime.set(te2Processed.await(10, TimeUnit.SECONDS));
+                }
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1, te2), Arrays.asList(TestDataScope.DS1), entity -> new TestEntityContext(entity), null, entity -> {
+                processedEntities.add(entity);
+                if (entity == te2) {
+                    te2Processed.countDown();
+                }
+            });
+
+            assertThat(te2ProcessedInTime.get()).isTrue();
+            assertThat(processedEntities).containsExactly(te2, te1);
+        })
+                .revert();
+    }
+
+    @Test
+    void testNonBlockingDataProcessor() {
+        var backend = Executors.newSingleThreadScheduledExecutor();
+        try {
+            DefaultStateRevert.chain(chain -> {
+                TestEntity te1 = new TestEntity().setDomainRef(1);
+                TestEntity te2 = new TestEntity().setDomainRef(2);
+                var downstreamInvocations = new CopyOnWriteArrayList<TestEntity>();
+
+                chain.append(dataProcessorExtendable.registerDataProcessor(new NonBlockingDataProcessor<TestEntity, TestEntityContext>() {
+                    @Override
+                    public CompletionStage<CheckedConsumer<TestEntity>> processAsync(TestEntityContext context) {
+                        var stage = new CompletableFuture<CheckedConsumer<TestEntity>>();
+                        backend.schedule(() -> stage.complete(entity -> entity.setDomainRef(entity.getDomainRef() * 10)), 50, TimeUnit.MILLISECONDS);
+                        return stage;
+                    }
+                }, TestEntity.class, List.of(TestDataScope.DS3), null));
+                chain.append(dataProcessorExtendable.registerDataProcessor((TestEntityDataProcessor) context -> {
+                    downstreamInvocations.add(context.getCurrentEntity());
+                    return null;
+                }, TestEntity.class, List.of(TestDataScope.DS4), List.of(TestDataScope.DS3)));
+
+                asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1, te2), Arrays.asList(TestDataScope.DS4), entity -> new TestEntityContext(entity), null);
+
+                // the successors are scheduled by the completion callbacks and the call still waits for them
+                assertThat(te1.getDomainRef()).isEqualTo(10);
+                assertThat(te2.getDomainRef()).isEqualTo(20);
+                assertThat(downstreamInvocations).containsExactlyInAnyOrder(te1, te2);
+            })
+                    .revert();
+        } finally {
+            backend.shutdownNow();
+        }
+    }
+
+    @Test
+    void testTimeoutWithinBulkhead() throws InterruptedException {
+        var interruptedLatch = new CountDownLatch(1);
+        DefaultStateRevert.chain(chain -> {
+            var dataProcessor = (TestEntityDataProcessor) context -> {
+                if (context.getCurrentEntity()
+                        .getDomainRef() == 1) {
+                    try {
+                        Thread.sleep(10000);
+                    } catch (InterruptedException e) {
+                        interruptedLatch.countDown();
+                        throw e;
+                    }
+                }
+                return entity -> entity.setDomainRef(entity.getDomainRef() * 10);
+            };
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorTimeout(dataProcessor, Duration.ofMillis(100)));
+            // a single permit: the timed out execution has to release it for the other entity
+            chain.append(dataProcessorExtendable.registerDataProcessorBulkhead(dataProcessor, "singleBackend", 1));
+            chain.append(dataProcessorExtendable.registerDataProcessorExceptionHandler(dataProcessor, new DataProcessorExceptionHandler() {
+                @Override
+                public <E, C> CheckedConsumer<E> handleProcessException(DataProcessor<E, C> dataProcessor, C context, Throwable e) {
+                    assertThat(e).isInstanceOf(DataProcessorTimeoutException.class);
+                    return entity -> ((TestEntity) entity).setDomainRef(-1);
+                }
+            }));
+
+            TestEntity te1 = new TestEntity().setDomainRef(1);
+            TestEntity te2 = new TestEntity().setDomainRef(2);
+            var start = System.nanoTime();
+            asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(te1, te2), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity), null);
+
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+            assertThat(te1.getDomainRef()).isEqualTo(-1);
+            assertThat(te2.getDomainRef()).isEqualTo(20);
+        })
+                .revert();
+        // the worker running the timed out data processor has been interrupted
+        assertThat(interruptedLatch.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void testConcurrentEntityUpdateSeesTransferredThreadLocals() {
+        DefaultStateRevert.chain(chain -> {
+            var threadLocalValueInUpdater = new AtomicReference<String>();
+            var dataProcessor = (DataProcessor<TestEntity, TestEntityContext>) context -> entity -> threadLocalValueInUpdater.set(beanWithThreadLocalProvider.lastValueTL.get());
+            chain.append(dataProcessorExtendable.registerDataProcessor(dataProcessor, TestEntity.class, List.of(TestDataScope.DS3), null));
+            chain.append(dataProcessorExtendable.registerDataProcessorConcurrentEntityUpdate(dataProcessor));
+            // the deadline enforces the execution on another worker
+            chain.append(dataProcessorExtendable.registerDataProcessorTimeout(dataProcessor, Duration.ofSeconds(10)));
+
+            beanWithThreadLocalProvider.lastValueTL.set("tenant-1");
+            try {
+                asyncDataProcessor.processAllEntities(TestEntity.class, Arrays.asList(new TestEntity().setDomainRef(1)), Arrays.asList(TestDataScope.DS3), entity -> new TestEntityContext(entity),
+                        null);
+            } finally {
+                beanWithThreadLocalProvider.lastValueTL.remove();
+            }
+            assertThat(threadLocalValueInUpdater.get()).isEqualTo("tenant-1");
+        })
+                .revert();
+    }
+}
@@ -0,0 +1,36 @@
+package org.threadlys.threading.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import org.threadlys.streams.impl.LatencyHistogram;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class LatencyHistogramTest {
+    @Test
+    void testPercentilesAreWithinBucketPrecision() {
+        var histogram = new LatencyHistogram();
+        for (int a = 1; a <= 1000; a++) {
+            histogram.record(a * 1000L);
+        }
+        assertThat(histogram.getCount()).isEqualTo(1000);
+        assertThat(histogram.getMaxNanos()).isEqualTo(1_000_000);
+        assertThat(histogram.getMeanNanos()).isEqualTo(500_500);
+        assertThat(histogram.getPercentileNanos(50)).isBetween(500_000L, 625_000L);
+        assertThat(histogram.getPercentileNanos(99)).isBetween(990_000L, 1_000_000L);
+        assertThat(histogram.getPercentileNanos(100)).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void testEmptyHistogram() {
+        var histogram = new LatencyHistogram();
+        histogram.record(-5);
+
+        assertThat(histogram.getPercentileNanos(50)).isZero();
+        assertThat(new LatencyHistogram().getPercentileNanos(99)).isZero();
+        assertThat(new LatencyHistogram().getMeanNanos()).isZero();
+    }
+}
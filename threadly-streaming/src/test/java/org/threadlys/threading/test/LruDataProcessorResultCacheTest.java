@@ -0,0 +1,48 @@
+package org.threadlys.threading.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import org.threadlys.streams.CheckedConsumer;
+import org.threadlys.streams.impl.LruDataProcessorResultCache;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class LruDataProcessorResultCacheTest {
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() {
+        var cache = new LruDataProcessorResultCache(2);
+        CheckedConsumer<Object> entityUpdater1 = entity -> {
+        };
+        CheckedConsumer<Object> entityUpdater2 = entity -> {
+        };
+        CheckedConsumer<Object> entityUpdater3 = entity -> {
+        };
+        cache.put("1", entityUpdater1, Duration.ofMinutes(1));
+        cache.put("2", entityUpdater2, Duration.ofMinutes(1));
+
+        // touch the first entry so that the second one is the least recently used
+        assertThat(cache.get("1")).isSameAs(entityUpdater1);
+        cache.put("3", entityUpdater3, Duration.ofMinutes(1));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("1")).isSameAs(entityUpdater1);
+        assertThat(cache.get("2")).isNull();
+        assertThat(cache.get("3")).isSameAs(entityUpdater3);
+    }
+
+    @Test
+    void testExpiredEntryIsNotReturned() throws InterruptedException {
+        var cache = new LruDataProcessorResultCache(2);
+        cache.put("1", entity -> {
+        }, Duration.ofMillis(1));
+        Thread.sleep(10);
+
+        assertThat(cache.get("1")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+}
@@ -0,0 +1,188 @@
+package org.threadlys.threading.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.threadlys.streams.AsyncDataProcessor;
+import org.threadlys.streams.DataProcessorContext;
+import org.threadlys.streams.DataProcessorExtendable;
+import org.threadlys.streams.impl.InMemoryDataProcessorExecutionStatistics;
+import org.threadlys.utils.DefaultStateRevert;
+import org.threadlys.utils.configuration.CommonsUtilsSpringConfig;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import org.threadlys.configuration.CommonsThreadingSpringConfig;
+import org.threadlys.streams.DataScope;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+@TestPropertySource(properties = { "threadlys.streams.parallel-build-partition-size=16" })
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration
+class ParallelBuildAsyncDataProcessorTest {
+    @Configuration
+    @Import({ CommonsThreadingSpringConfig.class, CommonsUtilsSpringConfig.class })
+    static class ContextConfiguration {
+
+    }
+
+    @Data
+    @Accessors(chain = true)
+    static class TestEntity {
+        int domainRef;
+
+        String enrichedValue;
+    }
+
+    @Value
+    @RequiredArgsConstructor
+    static class TestEntityContext implements DataProcessorContext {
+        private final TestEntity currentEntity;
+
+        @Override
+        public Object extractDomainRef(Object entity) {
+            return ((TestEntity) entity).getDomainRef();
+        }
+    }
+
+    enum TestDataScope implements DataScope {
+        DS1, DS2;
+
+        @Override
+        public boolean isPartOf(DataScope scope) {
+            return scope == this;
+        }
+    }
+
+    @Autowired
+    AsyncDataProcessor asyncDataProcessor;
+
+    @Autowired
+    DataProcessorExtendable dataProcessorExtendable;
+
+    @Test
+    void testPartitionsAreBuiltInParallel() {
+        DefaultStateRevert.chain(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> entity.setEnrichedValue("a");
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> entity.setEnrichedValue(entity.getEnrichedValue() + "b");
+            }, TestEntity.class, List.of(TestDataScope.DS2), List.of(TestDataScope.DS1)));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 100; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            var contextCount = new AtomicInteger();
+            var processedEntities = new ConcurrentHashMap<Integer, String>();
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, (TestEntity entity) -> List.<DataScope> of(TestDataScope.DS2), entity -> {
+                contextCount.incrementAndGet();
+                return new TestEntityContext(entity);
+            }, null, entity -> processedEntities.put(entity.getDomainRef(), entity.getEnrichedValue()));
+
+            assertThat(contextCount.get()).isEqualTo(100);
+            assertThat(entities).allMatch(entity -> "ab".equals(entity.getEnrichedValue()));
+            assertThat(processedEntities).hasSize(100)
+                    .containsEntry(0, "ab")
+                    .containsEntry(99, "ab");
+            assertThat(processedEntities.values()).allMatch("ab"::equals);
+        })
+                .revert();
+    }
+
+    @Test
+    void testPartialFailureWhileBuildingPartitions() {
+        DefaultStateRevert.chain(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> entity.setEnrichedValue("a");
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 100; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            var result = asyncDataProcessor.tryProcessAllEntities(TestEntity.class, entities, List.of(TestDataScope.DS1), entity -> {
+                if (entity.getDomainRef() == 42) {
+                    throw new IllegalStateException("contextBuilder");
+                }
+                return new TestEntityContext(entity);
+            }, null);
+
+            // the failure of a single entity neither aborts its own partition nor the other ones
+            assertThat(result.getFailedEntities()).containsExactly(entities.get(42));
+            assertThat(result.getProcessedEntities()).hasSize(99)
+                    .allMatch(entity -> "a".equals(entity.getEnrichedValue()));
+            assertThat(entities.get(42)
+                    .getEnrichedValue()).isNull();
+        })
+                .revert();
+    }
+
+    @Test
+    void testFirstStageIsReportedOnceForAllPartitions() {
+        DefaultStateRevert.chain(chain -> {
+            var statistics = new InMemoryDataProcessorExecutionStatistics();
+            chain.append(dataProcessorExtendable.registerDataProcessorExecutionListener(statistics));
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> entity.setEnrichedValue("a");
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> entity.setEnrichedValue(entity.getEnrichedValue() + "b");
+            }, TestEntity.class, List.of(TestDataScope.DS2), List.of(TestDataScope.DS1)));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 100; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, List.of(TestDataScope.DS2), entity -> new TestEntityContext(entity), null);
+
+            var stageTimes = statistics.getEntityTypeStatistics(TestEntity.class)
+                    .getStageTimes();
+            assertThat(stageTimes).containsOnlyKeys(0, 1);
+            assertThat(stageTimes.get(0)
+                    .getCount()).isEqualTo(1);
+            assertThat(stageTimes.get(1)
+                    .getCount()).isEqualTo(1);
+        })
+                .revert();
+    }
+
+    @Test
+    void testSmallListIsBuiltSequentially() {
+        DefaultStateRevert.chain(chain -> {
+            chain.append(dataProcessorExtendable.registerDataProcessor(context -> {
+                return entity -> entity.setEnrichedValue("a");
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            var entities = List.of(new TestEntity().setDomainRef(1), new TestEntity().setDomainRef(2));
+            var builderThreads = new ConcurrentHashMap<Thread, Boolean>();
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, List.of(TestDataScope.DS1), entity -> {
+                builderThreads.put(Thread.currentThread(), Boolean.TRUE);
+                return new TestEntityContext(entity);
+            }, null);
+
+            assertThat(builderThreads).isEqualTo(Map.of(Thread.currentThread(), Boolean.TRUE));
+            assertThat(entities).allMatch(entity -> "a".equals(entity.getEnrichedValue()));
+        })
+                .revert();
+    }
+}
@@ -0,0 +1,117 @@
+package org.threadlys.threading.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataScope;
+import org.threadlys.streams.impl.BitsetUsedDataScopeTracker;
+import org.threadlys.streams.impl.DataScopeRegistry;
+import org.threadlys.streams.impl.MapUsedDataScopeTracker;
+import org.threadlys.streams.impl.UsedDataScopeTracker;
+
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+class UsedDataScopeTrackerTest {
+    enum TestDataScope implements DataScope {
+        DS1, DS2;
+
+        @Override
+        public boolean isPartOf(DataScope scope) {
+            return scope == this;
+        }
+    }
+
+    static final DataProcessor<Object, Object> DATA_PROCESSOR = context -> null;
+
+    final DataScopeRegistry dataScopeRegistry = new DataScopeRegistry();
+
+    @Test
+    void testBitsetTracker() {
+        assertSkipDecisions(new BitsetUsedDataScopeTracker());
+    }
+
+    @Test
+    void testMapTracker() {
+        var entityToUsedDataScopes = new ConcurrentHashMap<Object, Map<Object, Set<DataScope>>>();
+        assertSkipDecisions(new MapUsedDataScopeTracker(entityToUsedDataScopes));
+        assertThat(entityToUsedDataScopes.get(1)
+                .get(DATA_PROCESSOR.getClass()
+                        .getName())).containsExactlyInAnyOrder(TestDataScope.DS1, TestDataScope.DS2);
+    }
+
+    @Test
+    void testMapTrackerWithPlainMapConcurrently() throws Exception {
+        var entityToUsedDataScopes = new HashMap<Object, Map<Object, Set<DataScope>>>();
+        assertExactlyOneWinner(new MapUsedDataScopeTracker(entityToUsedDataScopes));
+        assertThat(entityToUsedDataScopes).hasSize(1000);
+    }
+
+    @Test
+    void testBitsetTrackerConcurrently() throws Exception {
+        assertExactlyOneWinner(new BitsetUsedDataScopeTracker());
+    }
+
+    @Test
+    void testMapTrackerConcurrently() throws Exception {
+        assertExactlyOneWinner(new MapUsedDataScopeTracker(new ConcurrentHashMap<>()));
+    }
+
+    void assertSkipDecisions(UsedDataScopeTracker tracker) {
+        var ds1 = List.<DataScope> of(TestDataScope.DS1);
+        var ds2 = List.<DataScope> of(TestDataScope.DS2);
+        var ds1And2 = List.<DataScope> of(TestDataScope.DS1, TestDataScope.DS2);
+
+        assertThat(tracker.markUsed(1, DATA_PROCESSOR, ds1, dataScopeRegistry.registerAll(ds1))).isFalse();
+        assertThat(tracker.markUsed(1, DATA_PROCESSOR, ds1, dataScopeRegistry.registerAll(ds1))).isTrue();
+        assertThat(tracker.markUsed(1, DATA_PROCESSOR, ds2, dataScopeRegistry.registerAll(ds2))).isFalse();
+        assertThat(tracker.markUsed(1, DATA_PROCESSOR, ds1And2, dataScopeRegistry.registerAll(ds1And2))).isTrue();
+        // another domain object is tracked independently
+        assertThat(tracker.markUsed(2, DATA_PROCESSOR, ds1And2, dataScopeRegistry.registerAll(ds1And2))).isFalse();
+        // skipped if any data scope has been used - not only the first one
+        assertThat(tracker.markUsed(3, DATA_PROCESSOR, ds2, dataScopeRegistry.registerAll(ds2))).isFalse();
+        assertThat(tracker.markUsed(3, DATA_PROCESSOR, ds1And2, dataScopeRegistry.registerAll(ds1And2))).isTrue();
+    }
+
+    void assertExactlyOneWinner(UsedDataScopeTracker tracker) throws Exception {
+        var threadCount = 8;
+        var dataScopes = List.<DataScope> of(TestDataScope.DS1);
+        var dataScopeBits = dataScopeRegistry.registerAll(dataScopes);
+        var winnerCount = new AtomicInteger();
+        var barrier = new CyclicBarrier(threadCount);
+        var executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            var callables = new ArrayList<Callable<Object>>();
+            for (int a = threadCount; a-- > 0;) {
+                callables.add(() -> {
+                    barrier.await();
+                    for (int domainRef = 0; domainRef < 1000; domainRef++) {
+                        if (!tracker.markUsed(domainRef, DATA_PROCESSOR, dataScopes, dataScopeBits)) {
+                            winnerCount.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (var future : executor.invokeAll(callables)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(winnerCount.get()).isEqualTo(1000);
+    }
+}
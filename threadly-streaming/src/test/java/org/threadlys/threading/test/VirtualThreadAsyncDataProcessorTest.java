@@ -0,0 +1,175 @@
+package org.threadlys.threading.test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+import org.threadlys.streams.AsyncDataProcessor;
+import org.threadlys.streams.DataProcessor;
+import org.threadlys.streams.DataProcessorContext;
+import org.threadlys.streams.DataProcessorExtendable;
+import org.threadlys.streams.DataProcessorExecutionMode;
+import org.threadlys.streams.impl.AsyncDataProcessorImpl;
+import org.threadlys.threading.impl.ForkJoinPoolGuard;
+import org.threadlys.utils.DefaultStateRevert;
+import org.threadlys.utils.configuration.CommonsUtilsSpringConfig;
+import org.junit.jupiter.api.DisplayNameGeneration;
+import org.junit.jupiter.api.DisplayNameGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import org.threadlys.configuration.CommonsThreadingSpringConfig;
+import org.threadlys.streams.DataScope;
+import org.threadlys.threading.test.context.BeanWithThreadLocalProvider;
+
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.SneakyThrows;
+import lombok.Value;
+import lombok.experimental.Accessors;
+
+@TestPropertySource(properties = { "threadlys.streams.virtual-threads=true" })
+@DisplayNameGeneration(DisplayNameGenerator.ReplaceUnderscores.class)
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration
+class VirtualThreadAsyncDataProcessorTest {
+    @Configuration
+    @Import({ CommonsThreadingSpringConfig.class, CommonsUtilsSpringConfig.class, BeanWithThreadLocalProvider.class })
+    static class ContextConfiguration {
+
+    }
+
+    @Data
+    @Accessors(chain = true)
+    static class TestEntity {
+        int domainRef;
+
+        String enrichedValue;
+    }
+
+    @Value
+    @RequiredArgsConstructor
+    static class TestEntityContext implements DataProcessorContext {
+        private final TestEntity currentEntity;
+
+        @Override
+        public Object extractDomainRef(Object entity) {
+            return ((TestEntity) entity).getDomainRef();
+        }
+    }
+
+    enum TestDataScope implements DataScope {
+        DS1, DS2;
+
+        @Override
+        public boolean isPartOf(DataScope scope) {
+            return scope == this;
+        }
+    }
+
+    @Autowired
+    AsyncDataProcessor asyncDataProcessor;
+
+    @Autowired
+    DataProcessorExtendable dataProcessorExtendable;
+
+    @Autowired
+    ForkJoinPoolGuard forkJoinPoolGuard;
+
+    @Autowired
+    BeanWithThreadLocalProvider beanWithThreadLocalProvider;
+
+    @Test
+    void testStaged() {
+        assertEntitiesProcessedOnExpectedThreads();
+    }
+
+    @Test
+    void testDependencyDriven() {
+        var asyncDataProcessorImpl = (AsyncDataProcessorImpl) asyncDataProcessor;
+        asyncDataProcessorImpl.setExecutionMode(DataProcessorExecutionMode.DEPENDENCY_DRIVEN);
+        try {
+            assertEntitiesProcessedOnExpectedThreads();
+        } finally {
+            asyncDataProcessorImpl.setExecutionMode(DataProcessorExecutionMode.STAGED);
+        }
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void testVirtualThreadsWithTransferredThreadLocal() {
+        assertThat(forkJoinPoolGuard.getVirtualThreadExecutor()).isPresent();
+        DefaultStateRevert.chain(chain -> {
+            var executionThreads = new CopyOnWriteArrayList<Thread>();
+            var transferredValues = new CopyOnWriteArrayList<String>();
+            chain.append(dataProcessorExtendable.registerDataProcessor((DataProcessor<TestEntity, TestEntityContext>) context -> {
+                executionThreads.add(Thread.currentThread());
+                transferredValues.add(beanWithThreadLocalProvider.lastValueTL.get());
+                return null;
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 10; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+            beanWithThreadLocalProvider.lastValueTL.set("transferred");
+            try {
+                asyncDataProcessor.processAllEntities(TestEntity.class, entities, List.of(TestDataScope.DS1), entity -> new TestEntityContext(entity), null);
+            } finally {
+                beanWithThreadLocalProvider.lastValueTL.remove();
+            }
+
+            assertThat(executionThreads).hasSize(10)
+                    .allMatch(VirtualThreadAsyncDataProcessorTest::isVirtual);
+            assertThat(transferredValues).hasSize(10)
+                    .containsOnly("transferred");
+        })
+                .revert();
+    }
+
+    protected void assertEntitiesProcessedOnExpectedThreads() {
+        DefaultStateRevert.chain(chain -> {
+            var executionThreads = new CopyOnWriteArrayList<Thread>();
+            chain.append(dataProcessorExtendable.registerDataProcessor((DataProcessor<TestEntity, TestEntityContext>) context -> {
+                executionThreads.add(Thread.currentThread());
+                var value = "value-" + context.getCurrentEntity()
+                        .getDomainRef();
+                return entity -> entity.setEnrichedValue(value);
+            }, TestEntity.class, List.of(TestDataScope.DS1), null));
+
+            var entities = new ArrayList<TestEntity>();
+            for (int a = 0; a < 10; a++) {
+                entities.add(new TestEntity().setDomainRef(a));
+            }
+
+            asyncDataProcessor.processAllEntities(TestEntity.class, entities, List.of(TestDataScope.DS1), entity -> new TestEntityContext(entity), null);
+
+            assertThat(entities).allMatch(entity -> ("value-" + entity.getDomainRef()).equals(entity.getEnrichedValue()));
+            if (forkJoinPoolGuard.getVirtualThreadExecutor()
+                    .isPresent()) {
+                assertThat(executionThreads).allMatch(VirtualThreadAsyncDataProcessorTest::isVirtual);
+            } else {
+                // falls back to the fork join pool
+                assertThat(executionThreads).anyMatch(ForkJoinWorkerThread.class::isInstance);
+            }
+        })
+                .revert();
+    }
+
+    @SneakyThrows
+    static boolean isVirtual(Thread thread) {
+        return (Boolean) Thread.class.getMethod("isVirtual")
+                .invoke(thread);
+    }
+}